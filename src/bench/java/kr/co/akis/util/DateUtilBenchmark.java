@@ -0,0 +1,64 @@
+/**
+ * ================================================================================================
+ * Copyright (c) 2003 JJang (Seon-joo, Jang)
+ * Licensed under the MIT license (http://www.opensource.org/licenses/MIT)
+ * 
+ * @Author      : Seon-joo, Jang (jeuse7@gmail.com)
+ * @File Name   : DateUtilBenchmark.java
+ * @Description : DateUtil JMH 벤치마크 (parseDate, toDateFormat).
+ *                실행 : mvn -P benchmark test-compile exec:exec -Djmh.args="DateUtilBenchmark -prof gc"
+ * @Version     : 3.0.0
+ * ================================================================================================
+ */
+package kr.co.akis.util;
+
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DateUtilBenchmark {
+	
+	/** 화면, DB에서 들어오는 날짜 문자 형식 */
+	@Param({"2023-09-07", "2023.09.07", "20230907", "2023-09-07 13:37:00"})
+	public String dateStr;
+	
+	private final Date date = new Date(1694061420000L);
+	
+	@Benchmark
+	public Date parseDate() {
+		return DateUtil.parseDate(dateStr);
+	}
+	
+	@Benchmark
+	public Date parseDateLocale() {
+		return DateUtil.parseDate(dateStr, Locale.KOREA);
+	}
+	
+	@Benchmark
+	public String toDateFormatString() {
+		return DateUtil.toDateFormat(dateStr, "yyyy.MM.dd");
+	}
+	
+	@Benchmark
+	public String toDateFormatDate() {
+		return DateUtil.toDateFormat(date, "yyyy-MM-dd HH:mm:ss");
+	}
+	
+}
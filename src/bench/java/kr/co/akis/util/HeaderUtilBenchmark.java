@@ -0,0 +1,84 @@
+/**
+ * ================================================================================================
+ * Copyright (c) 2003 JJang (Seon-joo, Jang)
+ * Licensed under the MIT license (http://www.opensource.org/licenses/MIT)
+ * 
+ * @Author      : Seon-joo, Jang (jeuse7@gmail.com)
+ * @File Name   : HeaderUtilBenchmark.java
+ * @Description : HeaderUtil JMH 벤치마크 (getBrowser, getOsVersion).
+ *                실행 : mvn -P benchmark test-compile exec:exec -Djmh.args="HeaderUtilBenchmark -prof gc"
+ * @Version     : 3.0.0
+ * ================================================================================================
+ */
+package kr.co.akis.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeaderUtilBenchmark {
+	
+	/** 접속 브라우저 종류 */
+	@Param({"CHROME_WIN10", "EDGE_WIN10", "IE11_WIN7", "SAFARI_IPHONE", "CHROME_ANDROID"})
+	public String agentType;
+	
+	private HttpServletRequest request;
+	
+	@Setup
+	public void setup() {
+		final String userAgent;
+		if ("CHROME_WIN10".equals(agentType)) {
+			userAgent = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/118.0.0.0 Safari/537.36";
+		} else if ("EDGE_WIN10".equals(agentType)) {
+			userAgent = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/118.0.0.0 Safari/537.36 Edge/18.19045";
+		} else if ("IE11_WIN7".equals(agentType)) {
+			userAgent = "Mozilla/5.0 (Windows NT 6.1; WOW64; Trident/7.0; rv:11.0) like Gecko";
+		} else if ("SAFARI_IPHONE".equals(agentType)) {
+			userAgent = "Mozilla/5.0 (iPhone; CPU iPhone OS 16_6 like Mac OS X) AppleWebKit/605.1.15 (KHTML, like Gecko) Version/16.6 Mobile/15E148 Safari/604.1";
+		} else {
+			userAgent = "Mozilla/5.0 (Linux; Android 13; SM-S911N) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/118.0.0.0 Mobile Safari/537.36";
+		}
+		// User-Agent 헤더만 돌려주는 요청 객체
+		request = (HttpServletRequest) Proxy.newProxyInstance(HttpServletRequest.class.getClassLoader(), new Class<?>[] {HttpServletRequest.class}, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				if ("getHeader".equals(method.getName()) && "User-Agent".equalsIgnoreCase((String) args[0])) {
+					return userAgent;
+				}
+				return null;
+			}
+		});
+	}
+	
+	@Benchmark
+	public String getBrowser() {
+		return HeaderUtil.getBrowser(request);
+	}
+	
+	@Benchmark
+	public String getOsVersion() {
+		return HeaderUtil.getOsVersion(request);
+	}
+	
+}
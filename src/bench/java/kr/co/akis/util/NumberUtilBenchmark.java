@@ -0,0 +1,55 @@
+/**
+ * ================================================================================================
+ * Copyright (c) 2003 JJang (Seon-joo, Jang)
+ * Licensed under the MIT license (http://www.opensource.org/licenses/MIT)
+ * 
+ * @Author      : Seon-joo, Jang (jeuse7@gmail.com)
+ * @File Name   : NumberUtilBenchmark.java
+ * @Description : NumberUtil JMH 벤치마크 (toInt, isNumeric).
+ *                실행 : mvn -P benchmark test-compile exec:exec -Djmh.args="NumberUtilBenchmark -prof gc"
+ * @Version     : 3.0.0
+ * ================================================================================================
+ */
+package kr.co.akis.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NumberUtilBenchmark {
+	
+	/** 요청 파라미터로 들어오는 숫자 문자 (페이지 번호, 콤마 금액, 앞뒤 공백, 소수점) */
+	@Param({"1", "12,345", " 2147483647 ", "-3.0"})
+	public String numberStr;
+	
+	@Benchmark
+	public int toInt() {
+		return NumberUtil.toInt(numberStr);
+	}
+	
+	@Benchmark
+	public int toIntDefault() {
+		return NumberUtil.toInt(numberStr, 1);
+	}
+	
+	@Benchmark
+	public boolean isNumeric() {
+		return NumberUtil.isNumeric(numberStr);
+	}
+	
+}
@@ -0,0 +1,87 @@
+/**
+ * ================================================================================================
+ * Copyright (c) 2003 JJang (Seon-joo, Jang)
+ * Licensed under the MIT license (http://www.opensource.org/licenses/MIT)
+ * 
+ * @Author      : Seon-joo, Jang (jeuse7@gmail.com)
+ * @File Name   : StringUtilBenchmark.java
+ * @Description : StringUtil JMH 벤치마크 (xss, xssBlacklist, getByteLen).
+ *                실행 : mvn -P benchmark test-compile exec:exec -Djmh.args="StringUtilBenchmark -prof gc"
+ * @Version     : 3.0.0
+ * ================================================================================================
+ */
+package kr.co.akis.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StringUtilBenchmark {
+	
+	/** 입력 종류 - 짧은 제목, 일반 본문, 스크립트가 섞인 본문 */
+	@Param({"TITLE", "CONTENT", "SCRIPT"})
+	public String input;
+	
+	private String text;
+	
+	@Setup
+	public void setup() {
+		if ("TITLE".equals(input)) {
+			text = "2023년 하반기 정보보안 교육 일정 안내";
+		} else if ("CONTENT".equals(input)) {
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < 20; i++) {
+				sb.append("안녕하세요. 게시판 본문 내용입니다. Hello World 1234 & \"quote\" <b>bold</b>\n");
+			}
+			text = sb.toString();
+		} else {
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < 10; i++) {
+				sb.append("본문 <script>alert('xss');</script> <img src=x onerror=alert(1)> javascript:void(0) <iframe src='//evil'></iframe>\n");
+			}
+			text = sb.toString();
+		}
+	}
+	
+	@Benchmark
+	public String xss() {
+		return StringUtil.xss(text);
+	}
+	
+	@Benchmark
+	public String xssLineToBr() {
+		return StringUtil.xss(text, true);
+	}
+	
+	@Benchmark
+	public String xssBlacklist() {
+		return StringUtil.xssBlacklist(text);
+	}
+	
+	@Benchmark
+	public int getByteLenUtf8() {
+		return StringUtil.getByteLen(text, "UTF-8");
+	}
+	
+	@Benchmark
+	public int getByteLenEucKr() {
+		return StringUtil.getByteLen(text, "EUC-KR");
+	}
+	
+}
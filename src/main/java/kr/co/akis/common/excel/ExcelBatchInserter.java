@@ -0,0 +1,210 @@
+/**
+ * ================================================================================================
+ * Copyright (c) 2003 JJang (Seon-joo, Jang)
+ * Licensed under the MIT license (http://www.opensource.org/licenses/MIT)
+ * 
+ * @Author      : Seon-joo, Jang (jeuse7@gmail.com)
+ * @File Name   : ExcelBatchInserter.java
+ * @Description : 유효성 체크를 통과한 엑셀 Row를 MyBatis BATCH Executor로 묶어서 등록하는 클래스.
+ *                Row마다 DB를 왕복하지 않고 JDBC Batch로 모아서 flushSize 마다 전송하며 커밋은 finish() 에서 한번만 한다.
+ *                중간에 오류가 나면 rollback() 으로 전체 등록을 취소할 수 있다.
+ *                PoiExcelReader.RowHandler 로 사용하거나 PoiExcel.validate 통과 후 Sheet를 직접 넘긴다.
+ *                Spring 트랜잭션 안에서 호출하면 같은 커넥션을 사용하며 커밋은 트랜잭션 종료시 한번에 된다.
+ * @Version     : 3.0.0
+ * ================================================================================================
+ */
+package kr.co.akis.common.excel;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import kr.co.akis.util.StringUtil;
+
+public class ExcelBatchInserter implements PoiExcelReader.RowHandler {
+	
+	private static final Logger logger = LoggerFactory.getLogger(ExcelBatchInserter.class);
+	
+	/** 기본 전송 Row 수 */
+	public static final int DEFAULT_FLUSH_SIZE = 1000;
+	
+	/** BATCH Executor SqlSession */
+	private final SqlSession sqlSession;
+	
+	/** 등록 쿼리 ID (namespace.id) */
+	private final String statement;
+	
+	/** 쿼리 파라미터 키 (엑셀 컬럼 순서) */
+	private final String[] properties;
+	
+	/** 모든 Row에 공통으로 넣을 파라미터 (등록자 ID 등, null 가능) */
+	private final Map<String, Object> commonParam;
+	
+	/** 전송 Row 수 */
+	private final int flushSize;
+	
+	/** 등록한 Row 수 */
+	private int rowCnt;
+	
+	/** 마지막 전송 이후 등록한 Row 수 */
+	private int pendingCnt;
+	
+	/** 등록 시작 시간 */
+	private final long startTime;
+	
+	/** 등록 종료 시간 */
+	private long endTime;
+	
+	/**
+	 * <p>Constructor</p>
+	 * <p>BATCH Executor SqlSession을 연다. 사용 후 반드시 finish() 또는 rollback()을 호출해야 한다.</p>
+	 * 
+	 * @param sqlSessionFactory (SqlSessionFactory 객체)
+	 * @param statement         (등록 쿼리 ID - namespace.id)
+	 * @param properties        (쿼리 파라미터 키 - 엑셀 컬럼 순서)
+	 * @param commonParam       (모든 Row에 공통으로 넣을 파라미터, null 가능)
+	 * @param flushSize         (Batch 전송 Row 수)
+	 */
+	public ExcelBatchInserter(SqlSessionFactory sqlSessionFactory, String statement, String[] properties, Map<String, Object> commonParam, int flushSize) {
+		this.sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH, false);
+		this.statement = statement;
+		this.properties = properties;
+		this.commonParam = commonParam;
+		this.flushSize = flushSize > 0 ? flushSize : DEFAULT_FLUSH_SIZE;
+		this.startTime = System.currentTimeMillis();
+	}
+	
+	@Override
+	public void handle(List<String[]> rowList) throws Exception {
+		for (String[] rowValues : rowList) {
+			insert(rowValues);
+		}
+	}
+	
+	/**
+	 * <p>Row 하나를 Batch에 추가하고 flushSize 에 도달하면 전송한다. (커밋하지 않음)</p>
+	 * 
+	 * @param rowValues (Row 데이터 - 쿼리 파라미터 키 순서)
+	 */
+	public void insert(String[] rowValues) {
+		Map<String, Object> paramMap = new HashMap<String, Object>();
+		if (commonParam != null) {
+			paramMap.putAll(commonParam);
+		}
+		for (int i = 0; i < properties.length; i++) {
+			paramMap.put(properties[i], i < rowValues.length ? rowValues[i] : null);
+		}
+		sqlSession.insert(statement, paramMap);
+		rowCnt++;
+		if (++pendingCnt >= flushSize) {
+			flush();
+		}
+	}
+	
+	/**
+	 * <p>모인 Batch를 전송한다.</p>
+	 */
+	private void flush() {
+		sqlSession.flushStatements();
+		sqlSession.clearCache();
+		pendingCnt = 0;
+	}
+	
+	/**
+	 * <p>남은 Batch를 전송, 커밋하고 SqlSession을 닫은 후 등록한 Row 수를 리턴한다.</p>
+	 * 
+	 * @return int (등록한 Row 수)
+	 */
+	public int finish() {
+		try {
+			flush();
+			sqlSession.commit();
+		} finally {
+			sqlSession.close();
+			endTime = System.currentTimeMillis();
+		}
+		logger.info("엑셀 Batch 등록 완료 [쿼리 ID : " + statement + ", Row 수 : " + rowCnt + ", 소요시간 : " + getElapsedTime() + "ms, 초당 Row 수 : " + getRowsPerSecond() + "]");
+		return rowCnt;
+	}
+	
+	/**
+	 * <p>등록한 Row를 모두 롤백하고 SqlSession을 닫는다.</p>
+	 */
+	public void rollback() {
+		try {
+			sqlSession.rollback(true);
+		} finally {
+			sqlSession.close();
+			endTime = System.currentTimeMillis();
+		}
+	}
+	
+	/**
+	 * <p>등록한 Row 수를 리턴한다.</p>
+	 * 
+	 * @return int (등록한 Row 수)
+	 */
+	public int getRowCnt() {
+		return rowCnt;
+	}
+	
+	/**
+	 * <p>등록 소요시간(밀리초)을 리턴한다.</p>
+	 * 
+	 * @return long (소요시간)
+	 */
+	public long getElapsedTime() {
+		return (endTime > 0 ? endTime : System.currentTimeMillis()) - startTime;
+	}
+	
+	/**
+	 * <p>초당 등록 Row 수를 리턴한다.</p>
+	 * 
+	 * @return long (초당 Row 수)
+	 */
+	public long getRowsPerSecond() {
+		return rowCnt * 1000L / Math.max(1L, getElapsedTime());
+	}
+	
+	/**
+	 * <p>PoiExcel.validate 를 통과한 Sheet의 데이터 Row(두번째 Row부터)를 Batch로 등록하고 등록한 Row 수를 리턴한다.</p>
+	 * <p>Cell 값은 유효성 체크와 같은 PoiExcel.getValue(cell) 값의 앞뒤 공백을 제거해서 넘긴다. 오류가 발생하면 모든 Row가 롤백된다.</p>
+	 * 
+	 * @param sqlSessionFactory (SqlSessionFactory 객체)
+	 * @param statement         (등록 쿼리 ID - namespace.id)
+	 * @param sheet             (유효성 체크를 통과한 Sheet)
+	 * @param properties        (쿼리 파라미터 키 - 엑셀 컬럼 순서)
+	 * @param commonParam       (모든 Row에 공통으로 넣을 파라미터, null 가능)
+	 * @param flushSize         (Batch 전송 Row 수)
+	 * @return int              (등록한 Row 수)
+	 */
+	public static int insert(SqlSessionFactory sqlSessionFactory, String statement, Sheet sheet, String[] properties, Map<String, Object> commonParam, int flushSize) {
+		ExcelBatchInserter inserter = new ExcelBatchInserter(sqlSessionFactory, statement, properties, commonParam, flushSize);
+		String[] rowValues = new String[properties.length];
+		try {
+			for (int i = 1; i <= sheet.getLastRowNum(); i++) {
+				Row row = sheet.getRow(i);
+				if (row == null) {
+					continue;
+				}
+				for (int j = 0; j < properties.length; j++) {
+					rowValues[j] = StringUtil.clean(PoiExcel.getValue(row.getCell(j)));
+				}
+				inserter.insert(rowValues);
+			}
+		} catch (RuntimeException e) {
+			inserter.rollback();
+			throw e;
+		}
+		return inserter.finish();
+	}
+	
+}
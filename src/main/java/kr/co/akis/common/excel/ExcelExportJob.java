@@ -0,0 +1,179 @@
+/**
+ * ================================================================================================
+ * Copyright (c) 2003 JJang (Seon-joo, Jang)
+ * Licensed under the MIT license (http://www.opensource.org/licenses/MIT)
+ * 
+ * @Author      : Seon-joo, Jang (jeuse7@gmail.com)
+ * @File Name   : ExcelExportJob.java
+ * @Description : 백그라운드 엑셀 다운로드 작업 정보 클래스.
+ * @Version     : 3.0.0
+ * ================================================================================================
+ */
+package kr.co.akis.common.excel;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class ExcelExportJob {
+	
+	/** 작업 상태 - 대기 */
+	public static final String STATUS_WAIT = "WAIT";
+	
+	/** 작업 상태 - 작성중 */
+	public static final String STATUS_RUNNING = "RUNNING";
+	
+	/** 작업 상태 - 완료 */
+	public static final String STATUS_DONE = "DONE";
+	
+	/** 작업 상태 - 오류 */
+	public static final String STATUS_ERROR = "ERROR";
+	
+	/** 작업 ID */
+	private final String jobId;
+	
+	/** 작업 요청자 (다운로드 권한 확인용) */
+	private final String owner;
+	
+	/** 다운로드 받을 파일명 */
+	private final String orgnName;
+	
+	/** 파일 저장경로 */
+	private final String savePath;
+	
+	/** 저장 파일명 */
+	private final String saveName;
+	
+	/** 작업 요청 시간 */
+	private final long requestTime;
+	
+	/** 작업 상태 */
+	private volatile String status = STATUS_WAIT;
+	
+	/** 작성한 Row 수 */
+	private volatile int rowCnt;
+	
+	/** 전체 Row 수 (알 수 없으면 -1) */
+	private volatile int totalCnt = -1;
+	
+	/** 작업 종료 시간 */
+	private volatile long endTime;
+	
+	/** 오류 메시지 */
+	private volatile String errorMessage;
+	
+	ExcelExportJob(String jobId, String owner, String orgnName, String savePath, String saveName) {
+		this.jobId = jobId;
+		this.owner = owner;
+		this.orgnName = orgnName;
+		this.savePath = savePath;
+		this.saveName = saveName;
+		this.requestTime = System.currentTimeMillis();
+	}
+	
+	public String getJobId() {
+		return jobId;
+	}
+	
+	public String getOwner() {
+		return owner;
+	}
+	
+	public String getOrgnName() {
+		return orgnName;
+	}
+	
+	public String getSavePath() {
+		return savePath;
+	}
+	
+	public String getSaveName() {
+		return saveName;
+	}
+	
+	public long getRequestTime() {
+		return requestTime;
+	}
+	
+	public String getStatus() {
+		return status;
+	}
+	
+	void setStatus(String status) {
+		this.status = status;
+	}
+	
+	public int getRowCnt() {
+		return rowCnt;
+	}
+	
+	public void setRowCnt(int rowCnt) {
+		this.rowCnt = rowCnt;
+	}
+	
+	public int getTotalCnt() {
+		return totalCnt;
+	}
+	
+	public void setTotalCnt(int totalCnt) {
+		this.totalCnt = totalCnt;
+	}
+	
+	public long getEndTime() {
+		return endTime;
+	}
+	
+	void setEndTime(long endTime) {
+		this.endTime = endTime;
+	}
+	
+	public String getErrorMessage() {
+		return errorMessage;
+	}
+	
+	void setErrorMessage(String errorMessage) {
+		this.errorMessage = errorMessage;
+	}
+	
+	/**
+	 * <p>작업이 끝났는지(완료 또는 오류) 여부를 리턴한다.</p>
+	 * 
+	 * @return boolean (종료 여부)
+	 */
+	public boolean isFinished() {
+		return STATUS_DONE.equals(status) || STATUS_ERROR.equals(status);
+	}
+	
+	/**
+	 * <p>진행률(%)을 리턴한다. 전체 Row 수를 모르면 -1을 리턴한다.</p>
+	 * 
+	 * @return int (진행률)
+	 */
+	public int getPercent() {
+		if (STATUS_DONE.equals(status)) {
+			return 100;
+		}
+		int total = totalCnt;
+		if (total <= 0) {
+			return -1;
+		}
+		return (int) Math.min(99, (long) rowCnt * 100 / total);
+	}
+	
+	/**
+	 * <p>상태 조회 응답용 Map으로 변환한다. 파일 경로는 포함하지 않는다.</p>
+	 * 
+	 * @return {@literal Map<String, Object>} (작업 상태 정보)
+	 */
+	public Map<String, Object> toMap() {
+		Map<String, Object> jobMap = new HashMap<String, Object>();
+		jobMap.put("jobId", jobId);
+		jobMap.put("status", status);
+		jobMap.put("rowCnt", rowCnt);
+		jobMap.put("totalCnt", totalCnt);
+		jobMap.put("percent", getPercent());
+		jobMap.put("orgnName", orgnName);
+		jobMap.put("errorMessage", errorMessage);
+		return jobMap;
+	}
+	
+}
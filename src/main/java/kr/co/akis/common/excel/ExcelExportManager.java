@@ -0,0 +1,244 @@
+/**
+ * ================================================================================================
+ * Copyright (c) 2003 JJang (Seon-joo, Jang)
+ * Licensed under the MIT license (http://www.opensource.org/licenses/MIT)
+ * 
+ * @Author      : Seon-joo, Jang (jeuse7@gmail.com)
+ * @File Name   : ExcelExportManager.java
+ * @Description : 백그라운드 엑셀 다운로드 작업 관리 클래스.
+ *                대용량 엑셀 작성을 요청 쓰레드가 아닌 크기가 제한된 작업 쓰레드에서 처리하고
+ *                업로드 경로에 파일로 저장한 뒤 작업 ID로 상태 조회, 다운로드 할 수 있게 한다.
+ *                동시 작업 수와 대기 작업 수는 global.properties 에서 설정한다.
+ *                  - excel.export.threads   : 동시 작업 수 (기본 2)
+ *                  - excel.export.queue     : 대기 작업 수 (기본 20)
+ *                  - excel.export.keepHours : 완료된 파일 보관 시간 (기본 24)
+ *                작업 정보는 메모리에만 있으므로 보관 시간이 지난 파일은 작업 정보가 없어도(재시작 등) 수정 시간 기준으로 정리한다.
+ * @Version     : 3.0.0
+ * ================================================================================================
+ */
+package kr.co.akis.common.excel;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import kr.co.akis.util.Const;
+import kr.co.akis.util.ExceptionUtil;
+import kr.co.akis.util.FileDownload;
+import kr.co.akis.util.FileUtil;
+import kr.co.akis.util.JsUtil;
+import kr.co.akis.util.StringUtil;
+
+public class ExcelExportManager {
+	
+	private static final Logger logger = LoggerFactory.getLogger(ExcelExportManager.class);
+	
+	/** 작성한 파일 저장 서브경로 */
+	public static final String SAVE_PATH = "/excel";
+	
+	/** 작업 목록 */
+	private static final Map<String, ExcelExportJob> jobMap = new ConcurrentHashMap<String, ExcelExportJob>();
+	
+	/** 작업 쓰레드 풀 */
+	private static final ThreadPoolExecutor executor;
+	
+	/** 완료된 파일 보관 시간 (밀리초) */
+	private static final long KEEP_MILLIS;
+	
+	/** 저장 경로 파일 정리 간격 (밀리초) */
+	private static final long PURGE_INTERVAL = TimeUnit.MINUTES.toMillis(10);
+	
+	/** 다음 저장 경로 파일 정리 시간 */
+	private static final AtomicLong nextPurgeTime = new AtomicLong(0);
+	
+	static {
+		int threads = Const.properties.getInt("excel.export.threads", 2);
+		int queue = Const.properties.getInt("excel.export.queue", 20);
+		KEEP_MILLIS = TimeUnit.HOURS.toMillis(Const.properties.getInt("excel.export.keepHours", 24));
+		executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(queue), new ThreadFactory() {
+			private final AtomicInteger threadNo = new AtomicInteger();
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "excel-export-" + threadNo.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		executor.allowCoreThreadTimeOut(true);
+	}
+	
+	/**
+	 * <p>백그라운드에서 엑셀 Sheet를 작성하는 작업.</p>
+	 */
+	public interface ExportTask {
+		
+		/**
+		 * <p>Sheet를 작성한다. 진행 상황은 job.setRowCnt(), job.setTotalCnt()로 알린다.</p>
+		 * 
+		 * @param sheet      (작성할 스트리밍 Sheet)
+		 * @param job        (작업 정보)
+		 * @throws Exception
+		 */
+		void write(Sheet sheet, ExcelExportJob job) throws Exception;
+		
+	}
+	
+	/**
+	 * <p>엑셀 작성 작업을 등록하고 작업 정보를 리턴한다.</p>
+	 * <p>대기 작업이 가득 찬 경우 null을 리턴하므로 호출한 쪽에서 잠시 후 다시 요청하도록 안내한다.</p>
+	 * 
+	 * @param owner          (작업 요청자 - 로그인 ID 또는 세션 ID)
+	 * @param fileName       (다운로드 받을 파일명)
+	 * @param task           (Sheet 작성 작업)
+	 * @return ExcelExportJob (작업 정보, 등록할 수 없으면 null)
+	 */
+	public static ExcelExportJob submit(String owner, String fileName, final ExportTask task) {
+		purge();
+		String jobId = UUID.randomUUID().toString().replaceAll("-", "");
+		final ExcelExportJob job = new ExcelExportJob(jobId, owner, fileName, FileUtil.cleanPath(Const.UPLOAD_PATH + SAVE_PATH), jobId + ".xlsx");
+		jobMap.put(jobId, job);
+		try {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					execute(job, task);
+				}
+			});
+			return job;
+		} catch (RejectedExecutionException e) {
+			jobMap.remove(jobId);
+			logger.warn("엑셀 다운로드 대기 작업이 가득 찼습니다. [작업 수 : " + executor.getQueue().size() + "]");
+			return null;
+		}
+	}
+	
+	/**
+	 * <p>작업 쓰레드에서 Sheet를 작성해서 파일로 저장한다.</p>
+	 */
+	private static void execute(ExcelExportJob job, ExportTask task) {
+		job.setStatus(ExcelExportJob.STATUS_RUNNING);
+		SXSSFWorkbook workbook = PoiExcel.createStreamWorkbook();
+		OutputStream os = null;
+		File saveFile = new File(job.getSavePath(), job.getSaveName());
+		try {
+			task.write(workbook.createSheet(), job);
+			saveFile.getParentFile().mkdirs();
+			os = new FileOutputStream(saveFile);
+			workbook.write(os);
+			job.setStatus(ExcelExportJob.STATUS_DONE);
+		} catch (Exception e) {
+			logger.error(ExceptionUtil.addMessage(e, "백그라운드 엑셀 작성 실패!! [작업 ID : " + job.getJobId() + "]"));
+		} finally {
+			if (os != null) try { os.close(); } catch (Exception e) {};
+			workbook.dispose();
+			// Error(OutOfMemoryError 등)로 중단된 경우도 실패로 끝내야 RUNNING 으로 남지 않고 정리된다.
+			if (!ExcelExportJob.STATUS_DONE.equals(job.getStatus())) {
+				job.setErrorMessage("Excel 파일 작성 실패!!");
+				job.setStatus(ExcelExportJob.STATUS_ERROR);
+				saveFile.delete();
+			}
+			job.setEndTime(System.currentTimeMillis());
+		}
+	}
+	
+	/**
+	 * <p>작업 정보를 리턴한다. 요청자가 다르면 null을 리턴한다.</p>
+	 * 
+	 * @param owner          (작업 요청자)
+	 * @param jobId          (작업 ID)
+	 * @return ExcelExportJob (작업 정보)
+	 */
+	public static ExcelExportJob getJob(String owner, String jobId) {
+		purge();
+		if (StringUtil.isBlank(jobId)) {
+			return null;
+		}
+		ExcelExportJob job = jobMap.get(jobId);
+		if (job == null || !StringUtil.clean(owner).equals(StringUtil.clean(job.getOwner()))) {
+			return null;
+		}
+		return job;
+	}
+	
+	/**
+	 * <p>완료된 작업의 파일을 다운로드한다.</p>
+	 * 
+	 * @param request  (HttpServletRequest 객체)
+	 * @param response (HttpServletResponse 객체)
+	 * @param owner    (작업 요청자)
+	 * @param jobId    (작업 ID)
+	 */
+	public static void download(HttpServletRequest request, HttpServletResponse response, String owner, String jobId) {
+		ExcelExportJob job = getJob(owner, jobId);
+		if (job == null) {
+			JsUtil.back(response, "엑셀 다운로드 작업 정보가 없습니다!!");
+		} else if (!ExcelExportJob.STATUS_DONE.equals(job.getStatus())) {
+			JsUtil.back(response, "엑셀 파일이 아직 작성되지 않았습니다!!");
+		} else {
+			FileDownload.download(request, response, job.getSavePath(), job.getSaveName(), job.getOrgnName(), "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+		}
+	}
+	
+	/**
+	 * <p>보관 시간이 지난 작업과 파일을 정리한다. 작업 등록과 상태 조회시 호출한다.</p>
+	 * <p>저장 경로의 파일은 PURGE_INTERVAL 간격으로 수정 시간을 기준으로 정리한다. (재시작 전에 작성한 파일 포함)</p>
+	 */
+	private static void purge() {
+		long now = System.currentTimeMillis();
+		long expireTime = now - KEEP_MILLIS;
+		for (Iterator<ExcelExportJob> it = jobMap.values().iterator(); it.hasNext();) {
+			ExcelExportJob job = it.next();
+			if (job.isFinished() && job.getEndTime() < expireTime) {
+				it.remove();
+				new File(job.getSavePath(), job.getSaveName()).delete();
+			}
+		}
+		long nextTime = nextPurgeTime.get();
+		if (now < nextTime || !nextPurgeTime.compareAndSet(nextTime, now + PURGE_INTERVAL)) {
+			return;
+		}
+		File[] files = new File(FileUtil.cleanPath(Const.UPLOAD_PATH + SAVE_PATH)).listFiles();
+		if (files == null) {
+			return;
+		}
+		for (File file : files) {
+			if (!file.isFile() || file.lastModified() >= expireTime) {
+				continue;
+			}
+			ExcelExportJob job = jobMap.get(file.getName().replaceFirst("\\.xlsx$", ""));
+			if (job != null && !job.isFinished()) {
+				continue;
+			}
+			if (file.delete()) {
+				logger.info("보관 시간이 지난 엑셀 파일 삭제 [파일경로 : " + file.getPath() + "]");
+			}
+		}
+	}
+	
+	/**
+	 * <p>작업 쓰레드 풀을 종료한다. 애플리케이션 종료시 호출한다.</p>
+	 */
+	public static void shutdown() {
+		executor.shutdownNow();
+	}
+	
+}
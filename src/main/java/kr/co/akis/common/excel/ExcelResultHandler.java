@@ -0,0 +1,160 @@
+/**
+ * ================================================================================================
+ * Copyright (c) 2003 JJang (Seon-joo, Jang)
+ * Licensed under the MIT license (http://www.opensource.org/licenses/MIT)
+ * 
+ * @Author      : Seon-joo, Jang (jeuse7@gmail.com)
+ * @File Name   : ExcelResultHandler.java
+ * @Description : MyBatis 조회 결과를 한 건씩 엑셀 Sheet에 작성하는 ResultHandler 클래스.
+ *                조회 결과를 List로 모으지 않으므로 스트리밍(SXSSF) Sheet와 함께 사용하면
+ *                JDBC 결과와 Workbook 모두 메모리에 올리지 않고 대용량 엑셀을 작성할 수 있다.
+ *                대용량 조회 쿼리는 mapper XML에 fetchSize, resultSetType="FORWARD_ONLY"를 지정한다.
+ * @Version     : 3.0.0
+ * ================================================================================================
+ */
+package kr.co.akis.common.excel;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.SystemMetaObject;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import kr.co.akis.util.ExceptionUtil;
+import kr.co.akis.util.JsUtil;
+
+public class ExcelResultHandler<T> implements ResultHandler<T> {
+	
+	private static final Logger logger = LoggerFactory.getLogger(ExcelResultHandler.class);
+	
+	/** 작성할 Sheet */
+	private final Sheet sheet;
+	
+	/** VO 프로퍼티명 또는 Map 키 (컬럼 순서) */
+	private final String[] properties;
+	
+	/** 컬럼별 Cell 스타일 */
+	private final CellStyle[] styles;
+	
+	/** 재사용하는 Row 값 배열 */
+	private final Object[] values;
+	
+	/** 다음에 작성할 Row 번호 */
+	private int rowNo;
+	
+	/** 진행 상황을 알릴 백그라운드 작업 (null 가능) */
+	private ExcelExportJob exportJob;
+	
+	/**
+	 * <p>Constructor</p>
+	 * <p>컬럼 정보의 제목으로 첫번째 Row를 작성한다.</p>
+	 * 
+	 * @param sheet     (작성할 Sheet)
+	 * @param columnArr (컬럼 정보 - {제목, VO 프로퍼티명 또는 Map 키})
+	 */
+	public ExcelResultHandler(Sheet sheet, String[][] columnArr) {
+		this(sheet, columnArr, null);
+	}
+	
+	/**
+	 * <p>Constructor</p>
+	 * <p>컬럼 정보의 제목으로 첫번째 Row를 작성한다.</p>
+	 * 
+	 * @param sheet     (작성할 Sheet)
+	 * @param columnArr (컬럼 정보 - {제목, VO 프로퍼티명 또는 Map 키})
+	 * @param styles    (데이터 Row의 컬럼별 Cell 스타일, null 가능)
+	 */
+	public ExcelResultHandler(Sheet sheet, String[][] columnArr, CellStyle[] styles) {
+		this.sheet = sheet;
+		this.styles = styles;
+		this.properties = new String[columnArr.length];
+		String[] titles = new String[columnArr.length];
+		for (int i = 0; i < columnArr.length; i++) {
+			titles[i] = columnArr[i][0];
+			properties[i] = columnArr[i][1];
+		}
+		this.values = new Object[columnArr.length];
+		PoiExcel.addRow(sheet, rowNo++, titles, null);
+	}
+	
+	@Override
+	public void handleResult(ResultContext<? extends T> resultContext) {
+		MetaObject metaObject = SystemMetaObject.forObject(resultContext.getResultObject());
+		for (int i = 0; i < properties.length; i++) {
+			values[i] = metaObject.hasGetter(properties[i]) ? metaObject.getValue(properties[i]) : null;
+		}
+		PoiExcel.addRow(sheet, rowNo++, values, styles);
+		if (exportJob != null) {
+			exportJob.setRowCnt(rowNo - 1);
+		}
+	}
+	
+	/**
+	 * <p>작성한 Row 수를 진행 상황으로 알릴 백그라운드 작업을 설정한다.</p>
+	 * 
+	 * @param exportJob           (백그라운드 작업 정보)
+	 * @return ExcelResultHandler (현재 객체)
+	 */
+	public ExcelResultHandler<T> setExportJob(ExcelExportJob exportJob) {
+		this.exportJob = exportJob;
+		return this;
+	}
+	
+	/**
+	 * <p>작성한 데이터 Row 수를 리턴한다.</p>
+	 * 
+	 * @return int (데이터 Row 수)
+	 */
+	public int getRowCnt() {
+		return rowNo - 1;
+	}
+	
+	/**
+	 * <p>Mapper 쿼리를 조회하면서 결과를 한 건씩 Sheet에 작성하고 작성한 데이터 Row 수를 리턴한다.</p>
+	 * 
+	 * @param sqlSession (SqlSession 객체)
+	 * @param statement  (Mapper 쿼리 ID - namespace.id)
+	 * @param parameter  (쿼리 파라미터)
+	 * @param sheet      (작성할 Sheet)
+	 * @param columnArr  (컬럼 정보 - {제목, VO 프로퍼티명 또는 Map 키})
+	 * @return int       (데이터 Row 수)
+	 */
+	public static int write(SqlSession sqlSession, String statement, Object parameter, Sheet sheet, String[][] columnArr) {
+		ExcelResultHandler<Object> handler = new ExcelResultHandler<Object>(sheet, columnArr);
+		sqlSession.select(statement, parameter, handler);
+		return handler.getRowCnt();
+	}
+	
+	/**
+	 * <p>Mapper 쿼리 결과를 스트리밍(SXSSF) 방식으로 작성하면서 파일 생성없이 직접 다운로드한다.</p>
+	 * 
+	 * @param request    (HttpServletRequest 객체)
+	 * @param response   (HttpServletResponse 객체)
+	 * @param sqlSession (SqlSession 객체)
+	 * @param statement  (Mapper 쿼리 ID - namespace.id)
+	 * @param parameter  (쿼리 파라미터)
+	 * @param columnArr  (컬럼 정보 - {제목, VO 프로퍼티명 또는 Map 키})
+	 * @param fileName   (다운로드 받을 파일명)
+	 */
+	public static void download(HttpServletRequest request, HttpServletResponse response, SqlSession sqlSession, String statement, Object parameter, String[][] columnArr, String fileName) {
+		SXSSFWorkbook workbook = PoiExcel.createStreamWorkbook();
+		try {
+			write(sqlSession, statement, parameter, workbook.createSheet(), columnArr);
+		} catch (Exception e) {
+			workbook.dispose();
+			logger.error(ExceptionUtil.addMessage(e, "Excel 파일 작성 실패!! [쿼리 ID : " + statement + "]"));
+			JsUtil.back(response, "Excel 파일 다운로드 실패!! ");
+			return;
+		}
+		PoiExcel.download(request, response, workbook, fileName);
+	}
+	
+}
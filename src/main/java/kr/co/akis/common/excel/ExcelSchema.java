@@ -0,0 +1,499 @@
+/**
+ * ================================================================================================
+ * Copyright (c) 2003 JJang (Seon-joo, Jang)
+ * Licensed under the MIT license (http://www.opensource.org/licenses/MIT)
+ * 
+ * @Author      : Seon-joo, Jang (jeuse7@gmail.com)
+ * @File Name   : ExcelSchema.java
+ * @Description : 엑셀 데이터 유효성 정보 클래스.
+ *                String[][] 유효성 정보를 한번만 해석해서 컬럼별 유효성 체크기를 미리 만들어 둔다.
+ *                생성 후에는 상태가 변하지 않으므로 여러 쓰레드에서 같이 사용할 수 있다. (날짜 포멧은 쓰레드별로 만든다.)
+ * @Version     : 3.0.0
+ * ================================================================================================
+ */
+package kr.co.akis.common.excel;
+
+import java.io.UnsupportedEncodingException;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import kr.co.akis.util.Const;
+import kr.co.akis.util.DateUtil;
+import kr.co.akis.util.ExceptionUtil;
+import kr.co.akis.util.NumberUtil;
+import kr.co.akis.util.StringUtil;
+
+public class ExcelSchema {
+	
+	private static final Logger logger = LoggerFactory.getLogger(ExcelSchema.class);
+	
+	/** 데이터 타입 - String */
+	public static final int TYPE_STRING = 0;
+	
+	/** 데이터 타입 - Number */
+	public static final int TYPE_NUMBER = 1;
+	
+	/** 데이터 타입 - Date */
+	public static final int TYPE_DATE = 2;
+	
+	/** 데이터 타입 - 기타 (체크하지 않음) */
+	public static final int TYPE_ETC = 3;
+	
+	/** 전체 오류 수집시 하나의 작업으로 체크할 Row 수 */
+	public static final int VALIDATE_CHUNK_SIZE = 2000;
+	
+	/** 오류 정렬 기준 (Row 번호, 컬럼 번호 순) */
+	private static final Comparator<ExcelViolation> VIOLATION_ORDER = new Comparator<ExcelViolation>() {
+		@Override
+		public int compare(ExcelViolation v1, ExcelViolation v2) {
+			if (v1.getRowNo() != v2.getRowNo()) {
+				return v1.getRowNo() < v2.getRowNo() ? -1 : 1;
+			}
+			return v1.getColumnNo() < v2.getColumnNo() ? -1 : (v1.getColumnNo() == v2.getColumnNo() ? 0 : 1);
+		}
+	};
+	
+	/** 컬럼별 유효성 정보 */
+	private final Column[] columns;
+	
+	/** byte 길이 계산 캐릭터셋 */
+	private final String charset;
+	
+	/** byte 길이 계산 방법 (0:UTF-8, 1:EUC-KR 계열, 2:기타) */
+	private final int charsetType;
+	
+	private ExcelSchema(Column[] columns, String charset) {
+		this.columns = columns;
+		this.charset = charset;
+		String upper = StringUtil.toUpperCase(charset);
+		if ("UTF-8".equals(upper) || "UTF8".equals(upper)) {
+			this.charsetType = 0;
+		} else if (StringUtil.equalsSplit("EUC-KR|EUCKR|MS949|CP949|X-WINDOWS-949", upper, "[|]")) {
+			this.charsetType = 1;
+		} else {
+			this.charsetType = 2;
+		}
+	}
+	
+	/**
+	 * <p>유효성 정보를 Application 기본 캐릭터셋으로 해석해서 ExcelSchema를 생성한다.</p>
+	 * 
+	 * @param validateArr    (유효성 정보 - {컬럼명, 데이터 타입, 데이터 길이 또는 날짜 포멧, Null 허용 여부})
+	 * @return ExcelSchema   (유효성 정보 객체)
+	 */
+	public static ExcelSchema compile(String[][] validateArr) {
+		return compile(validateArr, Const.ENCODING_TYPE);
+	}
+	
+	/**
+	 * <p>유효성 정보를 해석해서 ExcelSchema를 생성한다.</p>
+	 * 
+	 * @param validateArr    (유효성 정보 - {컬럼명, 데이터 타입, 데이터 길이 또는 날짜 포멧, Null 허용 여부})
+	 * @param charset        (String 타입 byte 길이 계산 캐릭터셋)
+	 * @return ExcelSchema   (유효성 정보 객체)
+	 */
+	public static ExcelSchema compile(String[][] validateArr, String charset) {
+		Column[] columns = new Column[validateArr.length];
+		for (int i = 0; i < validateArr.length; i++) {
+			columns[i] = new Column(validateArr[i]);
+		}
+		return new ExcelSchema(columns, charset);
+	}
+	
+	/**
+	 * <p>컬럼 수를 리턴한다.</p>
+	 * 
+	 * @return int (컬럼 수)
+	 */
+	public int getColumnCnt() {
+		return columns.length;
+	}
+	
+	/**
+	 * <p>해당 컬럼의 유효성 정보를 리턴한다.</p>
+	 * 
+	 * @param columnNo (컬럼 번호)
+	 * @return Column  (컬럼 유효성 정보)
+	 */
+	public Column getColumn(int columnNo) {
+		return columns[columnNo];
+	}
+	
+	/**
+	 * <p>Sheet의 제목 Row 컬럼 수를 체크하고 데이터 Row를 처음부터 유효성 체크해서 첫번째 오류를 리턴한다.</p>
+	 * 
+	 * @param sheet           (Sheet 객체)
+	 * @return ExcelViolation (첫번째 오류, 정상일 경우 null)
+	 */
+	public ExcelViolation validate(Sheet sheet) {
+		if (!checkColumnCnt(sheet)) {
+			return new ExcelViolation(0, -1, "ERROR_COLUMN_CNT", null);
+		}
+		return validate(sheet, 1, sheet.getPhysicalNumberOfRows());
+	}
+	
+	/**
+	 * <p>Sheet 제목 Row의 컬럼 수가 유효성 정보와 같은지 체크한다.</p>
+	 * 
+	 * @param sheet    (Sheet 객체)
+	 * @return boolean (체크 결과)
+	 */
+	public boolean checkColumnCnt(Sheet sheet) {
+		Row row = sheet.getRow(0);
+		return row != null && row.getPhysicalNumberOfCells() == columns.length;
+	}
+	
+	/**
+	 * <p>Sheet의 지정된 범위의 Row를 유효성 체크해서 첫번째 오류를 리턴한다.</p>
+	 * 
+	 * @param sheet           (Sheet 객체)
+	 * @param fromRow         (체크할 Row 시작위치)
+	 * @param toRow           (체크할 Row 끝위치, 포함하지 않음)
+	 * @return ExcelViolation (첫번째 오류, 정상일 경우 null)
+	 */
+	public ExcelViolation validate(Sheet sheet, int fromRow, int toRow) {
+		for (int i = fromRow; i < toRow; i++) {
+			Row row = sheet.getRow(i);
+			if (row != null) {
+				for (int j = 0; j < columns.length; j++) {
+					String error = check(j, StringUtil.clean(PoiExcel.getValue(row.getCell(j))));
+					if (error != null) {
+						return new ExcelViolation(i, j, error, columns[j]);
+					}
+				}
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * <p>Sheet의 모든 데이터 Row를 ForkJoinPool 공용 풀에서 병렬로 체크해서 오류 목록을 리턴한다.</p>
+	 * <p>Cell 값은 호출한 쓰레드에서 먼저 읽고 읽은 값만 병렬로 체크한다.</p>
+	 * 
+	 * @param sheet                           (Sheet 객체)
+	 * @param maxErrors                       (최대 오류 수)
+	 * @return {@literal List<ExcelViolation>} (오류 목록, 정상일 경우 빈 목록)
+	 */
+	public List<ExcelViolation> validateAll(Sheet sheet, int maxErrors) {
+		return validateAll(sheet, maxErrors, ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * <p>Sheet의 모든 데이터 Row를 Row 범위별로 나누어 병렬로 체크해서 오류 목록을 리턴한다.</p>
+	 * <p>POI Sheet는 여러 쓰레드에서 동시에 읽을 수 없으므로 Cell 값은 호출한 쓰레드에서 모두 읽어 두고,
+	 * 읽어 둔 값(String 배열)만 Row 범위별로 나누어 병렬로 체크한다.</p>
+	 * <p>첫번째 오류에서 멈추지 않고 최대 오류 수까지 모든 오류를 모으며, 결과는 Row, 컬럼 순으로 정렬된다.</p>
+	 * <p>최대 오류 수에 도달하면 남은 작업은 체크를 중단하므로, 이 경우 앞쪽 Row의 오류가 모두 포함된다는 보장은 없다.</p>
+	 * 
+	 * @param sheet                           (Sheet 객체)
+	 * @param maxErrors                       (최대 오류 수)
+	 * @param pool                            (체크 작업을 실행할 ForkJoinPool)
+	 * @return {@literal List<ExcelViolation>} (오류 목록, 정상일 경우 빈 목록)
+	 */
+	public List<ExcelViolation> validateAll(Sheet sheet, int maxErrors, ForkJoinPool pool) {
+		if (!checkColumnCnt(sheet)) {
+			List<ExcelViolation> violationList = new ArrayList<ExcelViolation>(1);
+			violationList.add(new ExcelViolation(0, -1, "ERROR_COLUMN_CNT", null));
+			return violationList;
+		}
+		int limit = maxErrors > 0 ? maxErrors : Integer.MAX_VALUE;
+		// Cell 값 읽기 (Sheet는 이 쓰레드에서만 읽는다.)
+		String[][] rowValues = new String[sheet.getLastRowNum() + 1][];
+		for (int i = 1; i < rowValues.length; i++) {
+			Row row = sheet.getRow(i);
+			if (row != null) {
+				rowValues[i] = new String[columns.length];
+				for (int j = 0; j < columns.length; j++) {
+					rowValues[i][j] = StringUtil.clean(PoiExcel.getValue(row.getCell(j)));
+				}
+			}
+		}
+		List<ExcelViolation> violationList = pool.invoke(new ValidateTask(rowValues, 1, rowValues.length, limit, new AtomicInteger()));
+		Collections.sort(violationList, VIOLATION_ORDER);
+		if (violationList.size() > limit) {
+			violationList = new ArrayList<ExcelViolation>(violationList.subList(0, limit));
+		}
+		return violationList;
+	}
+	
+	/**
+	 * <p>읽어 둔 Cell 값을 Row 범위로 나누어 병렬로 체크하는 작업.</p>
+	 */
+	private class ValidateTask extends RecursiveTask<List<ExcelViolation>> {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final String[][] rowValues;
+		private final int fromRow;
+		private final int toRow;
+		private final int maxErrors;
+		private final AtomicInteger errorCnt;
+		
+		ValidateTask(String[][] rowValues, int fromRow, int toRow, int maxErrors, AtomicInteger errorCnt) {
+			this.rowValues = rowValues;
+			this.fromRow = fromRow;
+			this.toRow = toRow;
+			this.maxErrors = maxErrors;
+			this.errorCnt = errorCnt;
+		}
+		
+		@Override
+		protected List<ExcelViolation> compute() {
+			if (toRow - fromRow > VALIDATE_CHUNK_SIZE) {
+				int midRow = (fromRow + toRow) >>> 1;
+				ValidateTask left = new ValidateTask(rowValues, fromRow, midRow, maxErrors, errorCnt);
+				left.fork();
+				List<ExcelViolation> violationList = new ValidateTask(rowValues, midRow, toRow, maxErrors, errorCnt).compute();
+				violationList.addAll(left.join());
+				return violationList;
+			}
+			List<ExcelViolation> violationList = new ArrayList<ExcelViolation>();
+			for (int i = fromRow; i < toRow && errorCnt.get() < maxErrors; i++) {
+				if (rowValues[i] != null) {
+					for (int j = 0; j < columns.length; j++) {
+						String error = check(j, rowValues[i][j]);
+						if (error != null) {
+							violationList.add(new ExcelViolation(i, j, error, columns[j]));
+							errorCnt.incrementAndGet();
+						}
+					}
+				}
+			}
+			return violationList;
+		}
+		
+	}
+	
+	/**
+	 * <p>해당 컬럼의 Cell 값을 유효성 체크하고 오류가 있을 경우 오류 결과를 리턴한다.</p>
+	 * <p>Cell 값은 좌우 공백이 제거된 값이어야 한다.</p>
+	 * 
+	 * @param columnNo (컬럼 번호)
+	 * @param cellVal  (체크할 Cell 값)
+	 * @return String  (오류 결과, 정상일 경우 null)
+	 */
+	public String check(int columnNo, String cellVal) {
+		Column column = columns[columnNo];
+		if (cellVal == null || cellVal.length() == 0) {
+			// 필수항목 체크
+			return column.isNullable ? null : "ERROR_DATA_NULL";
+		}
+		switch (column.type) {
+			case TYPE_NUMBER :
+				if (!isNumeric(cellVal)) {
+					return "ERROR_DATA_TYPE";
+				}
+				if (column.limit >= 0 && getNumberLen(cellVal) > column.limit) {
+					return "ERROR_DATA_LENGTH";
+				}
+				break;
+			case TYPE_DATE :
+				if (column.dataLimit.length() == 0) {
+					if (!DateUtil.isDate(cellVal)) {
+						return "ERROR_DATA_TYPE";
+					}
+				} else if (!column.isDateFormat(cellVal)) {
+					return "ERROR_DATA_TYPE";
+				}
+				break;
+			case TYPE_STRING :
+				if (column.limit >= 0 && getByteLen(cellVal, column.limit) > column.limit) {
+					return "ERROR_DATA_LENGTH";
+				}
+				break;
+			default :
+				break;
+		}
+		return null;
+	}
+	
+	/**
+	 * <p>NumberUtil.isNumeric 과 동일한 형식([+-]?\d*(\.\d+)?)인지 정규식 없이 체크한다.</p>
+	 */
+	private static boolean isNumeric(String str) {
+		int len = str.length();
+		int i = 0;
+		char c = str.charAt(0);
+		if (c == '+' || c == '-') {
+			i++;
+		}
+		while (i < len && isDigit(str.charAt(i))) {
+			i++;
+		}
+		if (i == len) {
+			return true;
+		}
+		if (str.charAt(i++) != '.') {
+			return false;
+		}
+		int start = i;
+		while (i < len && isDigit(str.charAt(i))) {
+			i++;
+		}
+		return i == len && i > start;
+	}
+	
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+	
+	/**
+	 * <p>NumberUtil.cleanDouble 로 정리한 숫자에서 소수점을 뺀 길이를 정규식 없이 계산한다.</p>
+	 * <p>cleanDouble 과 같이 부호는 길이에 포함하고, 숫자로만 된 값이 아니면 끝의 0을 모두 정리한다. ("-100" = 2)</p>
+	 */
+	private static int getNumberLen(String str) {
+		int end = str.length();
+		int dot = str.indexOf('.');
+		int i = end;
+		while (i > 0 && str.charAt(i - 1) == '0') {
+			i--;
+		}
+		if (dot >= 0 && i == dot + 1) {
+			// 소수점 뒤가 모두 0이면 소수점부터 정리한다.
+			end = dot;
+			dot = -1;
+		}
+		boolean isDigits = true;
+		for (int j = 0; j < end && isDigits; j++) {
+			isDigits = isDigit(str.charAt(j));
+		}
+		if (!isDigits) {
+			while (end > 0 && str.charAt(end - 1) == '0') {
+				end--;
+			}
+		}
+		return dot >= 0 && dot < end ? end - 1 : end;
+	}
+	
+	/**
+	 * <p>문자열의 byte 길이를 계산한다. 제한 길이를 넘어서면 더 계산하지 않는다.</p>
+	 */
+	private int getByteLen(String str, int limit) {
+		int len = str.length();
+		if (charsetType == 2) {
+			try {
+				return str.getBytes(charset).length;
+			} catch (UnsupportedEncodingException e) {
+				logger.error(ExceptionUtil.addMessage(e, "지원하지 않는 캐릭터셋 입니다."));
+				return 0;
+			}
+		}
+		int byteLen = 0;
+		for (int i = 0; i < len && byteLen <= limit; i++) {
+			char c = str.charAt(i);
+			if (c < 0x80) {
+				byteLen += 1;
+			} else if (charsetType == 1) {
+				byteLen += 2;
+			} else if (c < 0x800) {
+				byteLen += 2;
+			} else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(str.charAt(i + 1))) {
+				byteLen += 4;
+				i++;
+			} else {
+				byteLen += 3;
+			}
+		}
+		return byteLen;
+	}
+	
+	/**
+	 * <p>컬럼 유효성 정보.</p>
+	 */
+	public static class Column {
+		
+		private final String name;
+		private final String dataType;
+		private final String dataLimit;
+		private final String nullYn;
+		private final int type;
+		private final int limit;
+		private final boolean isNullable;
+		private final ThreadLocal<DateFormat> dateFormat;
+		
+		Column(String[] validate) {
+			this.name = StringUtil.clean(validate[0]);
+			this.dataType = StringUtil.clean(validate[1]);
+			this.dataLimit = StringUtil.clean(validate[2]);
+			this.nullYn = StringUtil.clean(validate[3]);
+			if ("Number".equals(dataType)) {
+				this.type = TYPE_NUMBER;
+			} else if ("Date".equals(dataType)) {
+				this.type = TYPE_DATE;
+			} else if ("String".equals(dataType)) {
+				this.type = TYPE_STRING;
+			} else {
+				this.type = TYPE_ETC;
+			}
+			this.limit = StringUtil.isBlank(dataLimit) || type == TYPE_DATE ? -1 : NumberUtil.toInt(dataLimit);
+			this.isNullable = !"N".equals(nullYn);
+			this.dateFormat = (type == TYPE_DATE && dataLimit.length() > 0) ? new ThreadLocal<DateFormat>() {
+				@Override
+				protected DateFormat initialValue() {
+					DateFormat sdf = new SimpleDateFormat(Column.this.dataLimit);
+					sdf.setLenient(false);
+					return sdf;
+				}
+			} : null;
+		}
+		
+		/**
+		 * <p>DateUtil.isDateFormat 과 동일하게 체크하되 SimpleDateFormat 은 쓰레드별로 한번만 만든다.</p>
+		 */
+		private boolean isDateFormat(String cellVal) {
+			String str = StringUtil.clean(StringUtil.left(cellVal, dataLimit.length()));
+			if (str.length() != dataLimit.length()) {
+				return false;
+			}
+			try {
+				dateFormat.get().parse(str);
+				return true;
+			} catch (ParseException e) {
+				return false;
+			}
+		}
+		
+		public String getName() {
+			return name;
+		}
+		
+		public String getDataType() {
+			return dataType;
+		}
+		
+		public String getDataLimit() {
+			return dataLimit;
+		}
+		
+		public String getNullYn() {
+			return nullYn;
+		}
+		
+		public int getType() {
+			return type;
+		}
+		
+		public int getLimit() {
+			return limit;
+		}
+		
+		public boolean isNullable() {
+			return isNullable;
+		}
+		
+	}
+	
+}
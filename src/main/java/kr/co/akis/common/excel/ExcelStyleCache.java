@@ -0,0 +1,171 @@
+/**
+ * ================================================================================================
+ * Copyright (c) 2003 JJang (Seon-joo, Jang)
+ * Licensed under the MIT license (http://www.opensource.org/licenses/MIT)
+ * 
+ * @Author      : Seon-joo, Jang (jeuse7@gmail.com)
+ * @File Name   : ExcelStyleCache.java
+ * @Description : Workbook별 Cell 스타일, Font 캐시 클래스.
+ *                같은 속성의 스타일과 Font는 한번만 생성해서 공유하므로 xls 파일의 스타일 개수 제한(64,000개)을
+ *                넘지 않고 파일 크기와 작성 시간이 줄어든다.
+ *                캐시한 스타일과 Font가 Workbook을 참조하므로 전역으로 보관하지 않고
+ *                작업(엑셀 작성, 오류 표시 등) 단위로 생성해서 Workbook과 같이 버린다.
+ *                캐시에 없으면 Workbook에 이미 있는 같은 속성의 스타일과 Font를 찾아서 사용하므로
+ *                작업마다 캐시를 새로 만들어도 Workbook의 스타일이 늘어나지 않는다.
+ * @Version     : 3.0.0
+ * ================================================================================================
+ */
+package kr.co.akis.common.excel;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.poi.ss.usermodel.BorderStyle;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.FillPatternType;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.HorizontalAlignment;
+import org.apache.poi.ss.usermodel.IndexedColors;
+import org.apache.poi.ss.usermodel.VerticalAlignment;
+import org.apache.poi.ss.usermodel.Workbook;
+
+import kr.co.akis.util.StringUtil;
+
+public class ExcelStyleCache {
+	
+	/** 기본 Font 이름 */
+	public static final String DEFAULT_FONT_NAME = "맑은 고딕";
+	
+	/** 기본 Font 크기 */
+	public static final short DEFAULT_FONT_SIZE = 10;
+	
+	/** 캐시 대상 Workbook */
+	private final Workbook workbook;
+	
+	/** 속성별 Font */
+	private final Map<String, Font> fontMap = new HashMap<String, Font>();
+	
+	/** 속성별 Cell 스타일 */
+	private final Map<String, CellStyle> styleMap = new HashMap<String, CellStyle>();
+	
+	/**
+	 * <p>해당 Workbook의 스타일 캐시를 생성한다. 같은 작업 안에서 하나를 만들어 같이 사용한다.</p>
+	 * 
+	 * @param workbook (Workbook 객체)
+	 */
+	public ExcelStyleCache(Workbook workbook) {
+		this.workbook = workbook;
+	}
+	
+	/**
+	 * <p>속성에 해당하는 Font를 리턴한다. 캐시와 Workbook에 없으면 새로 생성한다.</p>
+	 * 
+	 * @param fontName (Font 이름)
+	 * @param fontSize (Font 크기)
+	 * @param isBold   (굵게 여부)
+	 * @return Font    (Font 객체)
+	 */
+	public synchronized Font getFont(String fontName, short fontSize, boolean isBold) {
+		String key = fontName + "|" + fontSize + "|" + isBold;
+		Font font = fontMap.get(key);
+		if (font == null) {
+			font = workbook.findFont(isBold, Font.COLOR_NORMAL, (short) (fontSize * 20), fontName, false, false, Font.SS_NONE, Font.U_NONE);
+			if (font == null) {
+				font = workbook.createFont();
+				font.setFontName(fontName);
+				font.setFontHeightInPoints(fontSize);
+				font.setBold(isBold);
+			}
+			fontMap.put(key, font);
+		}
+		return font;
+	}
+	
+	/**
+	 * <p>기본 스타일(기본 Font, 가는 테두리, 가운데 정렬)을 리턴한다.</p>
+	 * 
+	 * @return CellStyle (Cell 스타일)
+	 */
+	public CellStyle getDefaultStyle() {
+		return getStyle(BorderStyle.THIN, HorizontalAlignment.CENTER, VerticalAlignment.CENTER, getFont(DEFAULT_FONT_NAME, DEFAULT_FONT_SIZE, false), null);
+	}
+	
+	/**
+	 * <p>속성에 해당하는 Cell 스타일을 리턴한다. 캐시와 Workbook에 없으면 새로 생성한다.</p>
+	 * 
+	 * @param border     (상하좌우 테두리)
+	 * @param align      (가로 정렬)
+	 * @param valign     (세로 정렬)
+	 * @param font       (Font 객체, null 가능)
+	 * @param dataFormat (데이터 포멧 - 예: "#,##0", "yyyy-mm-dd", null 가능)
+	 * @return CellStyle (Cell 스타일)
+	 */
+	public synchronized CellStyle getStyle(BorderStyle border, HorizontalAlignment align, VerticalAlignment valign, Font font, String dataFormat) {
+		String key = border + "|" + align + "|" + valign + "|" + (font == null ? "" : font.getIndex()) + "|" + StringUtil.clean(dataFormat);
+		CellStyle style = styleMap.get(key);
+		if (style == null) {
+			style = findStyle(border, align, valign, font, dataFormat);
+		}
+		if (style == null) {
+			style = workbook.createCellStyle();
+			style.setBorderTop(border);
+			style.setBorderLeft(border);
+			style.setBorderRight(border);
+			style.setBorderBottom(border);
+			style.setAlignment(align);
+			style.setVerticalAlignment(valign);
+			if (font != null) {
+				style.setFont(font);
+			}
+			if (!StringUtil.isBlank(dataFormat)) {
+				style.setDataFormat(workbook.createDataFormat().getFormat(dataFormat));
+			}
+		}
+		styleMap.put(key, style);
+		return style;
+	}
+	
+	/**
+	 * <p>Workbook에서 getStyle 로 만든 것과 같은 속성(배경, 줄바꿈 등 나머지는 기본값)의 Cell 스타일을 찾는다. 없으면 null을 리턴한다.</p>
+	 */
+	private CellStyle findStyle(BorderStyle border, HorizontalAlignment align, VerticalAlignment valign, Font font, String dataFormat) {
+		short fontIndex = font == null ? 0 : font.getIndex();
+		String format = StringUtil.clean(dataFormat);
+		for (int i = 0; i < workbook.getNumCellStyles(); i++) {
+			CellStyle style = workbook.getCellStyleAt(i);
+			if (style.getBorderTopEnum() == border && style.getBorderLeftEnum() == border
+					&& style.getBorderRightEnum() == border && style.getBorderBottomEnum() == border
+					&& style.getAlignmentEnum() == align && style.getVerticalAlignmentEnum() == valign
+					&& style.getFontIndex() == fontIndex
+					&& (format.isEmpty() ? style.getDataFormat() == 0 : format.equals(style.getDataFormatString()))
+					&& style.getFillPatternEnum() == FillPatternType.NO_FILL
+					&& !style.getWrapText() && style.getRotation() == 0 && style.getIndention() == 0
+					&& style.getTopBorderColor() == IndexedColors.BLACK.getIndex() && style.getLeftBorderColor() == IndexedColors.BLACK.getIndex()
+					&& style.getRightBorderColor() == IndexedColors.BLACK.getIndex() && style.getBottomBorderColor() == IndexedColors.BLACK.getIndex()) {
+				return style;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * <p>원래 스타일에 배경색만 바꾼 Cell 스타일을 리턴한다. 없으면 새로 생성한다.</p>
+	 * 
+	 * @param baseStyle  (원래 Cell 스타일)
+	 * @param fillColor  (배경색 - IndexedColors 인덱스)
+	 * @return CellStyle (Cell 스타일)
+	 */
+	public synchronized CellStyle getFillStyle(CellStyle baseStyle, short fillColor) {
+		String key = "fill|" + baseStyle.getIndex() + "|" + fillColor;
+		CellStyle style = styleMap.get(key);
+		if (style == null) {
+			style = workbook.createCellStyle();
+			style.cloneStyleFrom(baseStyle);
+			style.setFillForegroundColor(fillColor);
+			style.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+			styleMap.put(key, style);
+		}
+		return style;
+	}
+	
+}
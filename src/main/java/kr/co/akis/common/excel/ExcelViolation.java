@@ -0,0 +1,118 @@
+/**
+ * ================================================================================================
+ * Copyright (c) 2003 JJang (Seon-joo, Jang)
+ * Licensed under the MIT license (http://www.opensource.org/licenses/MIT)
+ * 
+ * @Author      : Seon-joo, Jang (jeuse7@gmail.com)
+ * @File Name   : ExcelViolation.java
+ * @Description : 엑셀 데이터 유효성 오류 정보 클래스.
+ * @Version     : 3.0.0
+ * ================================================================================================
+ */
+package kr.co.akis.common.excel;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class ExcelViolation {
+	
+	/** 오류 Row 번호 (0부터 시작, 0은 제목 Row) */
+	private final int rowNo;
+	
+	/** 오류 컬럼 번호 (0부터 시작, 컬럼 수 오류일 경우 -1) */
+	private final int columnNo;
+	
+	/** 오류 결과 (ERROR_COLUMN_CNT, ERROR_DATA_TYPE, ERROR_DATA_LENGTH, ERROR_DATA_NULL) */
+	private final String result;
+	
+	/** 오류 컬럼의 유효성 정보 */
+	private final ExcelSchema.Column column;
+	
+	/**
+	 * <p>Constructor</p>
+	 * 
+	 * @param rowNo    (오류 Row 번호)
+	 * @param columnNo (오류 컬럼 번호)
+	 * @param result   (오류 결과)
+	 * @param column   (오류 컬럼의 유효성 정보)
+	 */
+	public ExcelViolation(int rowNo, int columnNo, String result, ExcelSchema.Column column) {
+		this.rowNo = rowNo;
+		this.columnNo = columnNo;
+		this.result = result;
+		this.column = column;
+	}
+	
+	public int getRowNo() {
+		return rowNo;
+	}
+	
+	public int getColumnNo() {
+		return columnNo;
+	}
+	
+	public String getResult() {
+		return result;
+	}
+	
+	public ExcelSchema.Column getColumn() {
+		return column;
+	}
+	
+	/**
+	 * <p>PoiExcel.validate 와 동일한 형식의 유효성 체크 결과로 변환한다.</p>
+	 * 
+	 * @return {@literal Map<String, Object>} (유효성 체크 결과)
+	 */
+	public Map<String, Object> toMap() {
+		Map<String, Object> resultMap = new HashMap<String, Object>();
+		resultMap.put("result", result);
+		resultMap.put("rowNo", rowNo);
+		if (column != null) {
+			resultMap.put("columnNo", columnNo);
+			resultMap.put("columnName", column.getName());
+			resultMap.put("dataType", column.getDataType());
+			resultMap.put("dataLimit", column.getDataLimit());
+			resultMap.put("nullYn", column.getNullYn());
+		}
+		return resultMap;
+	}
+	
+	/**
+	 * <p>오류 내용을 한줄 메시지로 리턴한다.</p>
+	 * 
+	 * @return String (오류 메시지)
+	 */
+	public String getMessage() {
+		StringBuilder sb = new StringBuilder();
+		if ("ERROR_COLUMN_CNT".equals(result)) {
+			return sb.append("엑셀 업로드 파일 양식이 옳바르지 않습니다!!").toString();
+		} else if ("ERROR_DATA_TYPE".equals(result)) {
+			sb.append("데이터 타입을 확인하세요.");
+		} else if ("ERROR_DATA_LENGTH".equals(result)) {
+			sb.append("데이터 길이를 확인하세요.");
+		} else if ("ERROR_DATA_NULL".equals(result)) {
+			sb.append("해당 컬럼은 필수입력 항목입니다.");
+		} else {
+			sb.append("알 수 없는 시스템 오류!!");
+		}
+		if (column != null) {
+			sb.append(" (Type : ").append(column.getDataType());
+			if ("Date".equals(column.getDataType())) {
+				if (column.getDataLimit().length() > 0) {
+					sb.append(", Format : ").append(column.getDataLimit());
+				}
+			} else {
+				sb.append(", Length : ").append(column.getDataLimit());
+			}
+			sb.append(")");
+		}
+		return sb.toString();
+	}
+	
+	@Override
+	public String toString() {
+		return "ExcelViolation [rowNo=" + rowNo + ", columnNo=" + columnNo + ", result=" + result + "]";
+	}
+	
+}
@@ -14,7 +14,10 @@
 package kr.co.akis.common.excel;
 
 import java.awt.Point;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 
@@ -24,25 +27,28 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.apache.poi.hssf.usermodel.HSSFCellStyle;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
-import org.apache.poi.ss.usermodel.BorderStyle;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellStyle;
 import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.ss.usermodel.CellValue;
-import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.ClientAnchor;
+import org.apache.poi.ss.usermodel.Comment;
+import org.apache.poi.ss.usermodel.CreationHelper;
+import org.apache.poi.ss.usermodel.Drawing;
 import org.apache.poi.ss.usermodel.FormulaEvaluator;
-import org.apache.poi.ss.usermodel.HorizontalAlignment;
+import org.apache.poi.ss.usermodel.IndexedColors;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.VerticalAlignment;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFCellStyle;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import kr.co.akis.util.DateUtil;
+import kr.co.akis.util.ExceptionUtil;
 import kr.co.akis.util.FileDownload;
 import kr.co.akis.util.JsUtil;
 import kr.co.akis.util.NumberUtil;
@@ -52,6 +58,9 @@ public class PoiExcel {
 	
 	private static final Logger logger = LoggerFactory.getLogger(PoiExcel.class);
 	
+	/** 스트리밍(SXSSF) 엑셀 작성시 메모리에 유지할 기본 Row 수 */
+	public static final int STREAM_WINDOW_SIZE = 100;
+	
 	/**
 	 * <p>엑셀 데이터 유효성 체크 후 결과를 리턴한다.</p>
 	 * 
@@ -60,76 +69,99 @@ public class PoiExcel {
 	 * @return {@literal Map<String, Object>} (유효성 체크 결과)
 	 */
 	public static Map<String, Object> validate(Sheet sheet, String[][] validateArr) {
+		return validate(sheet, ExcelSchema.compile(validateArr));
+	}
+	
+	/**
+	 * <p>미리 해석해 둔 유효성 정보로 엑셀 데이터 유효성 체크 후 결과를 리턴한다.</p>
+	 * <p>같은 양식을 반복해서 체크할 경우 ExcelSchema를 한번만 생성해서 사용한다.</p>
+	 * 
+	 * @param sheet                           (Sheet 객체)
+	 * @param schema                          (체크할 유효성 정보 객체)
+	 * @return {@literal Map<String, Object>} (유효성 체크 결과)
+	 */
+	public static Map<String, Object> validate(Sheet sheet, ExcelSchema schema) {
+		ExcelViolation violation = schema.validate(sheet);
+		if (violation != null) {
+			return violation.toMap();
+		}
 		Map<String, Object> resultMap = new HashMap<String, Object>();
 		resultMap.put("result", "SUCCESS");
-		
-		if (validateArr.length != sheet.getRow(0).getPhysicalNumberOfCells()) {
-			resultMap.put("result", "ERROR_COLUMN_CNT");
-		} else {
-			loop1 :
-			for (int i = 1; i < sheet.getPhysicalNumberOfRows(); i++) {
-				resultMap.put("rowNo", i);
-				Row row = sheet.getRow(i);
-				if (row != null) {
-					for (int j = 0; j < validateArr.length; j++) {
-						String columnName = StringUtil.clean(validateArr[j][0]);
-						String dataType = StringUtil.clean(validateArr[j][1]);
-						String dataLimit = StringUtil.clean(validateArr[j][2]);
-						String nullYn = StringUtil.clean(validateArr[j][3]);
-						resultMap.put("columnNo", j);
-						resultMap.put("columnName", columnName);
-						resultMap.put("dataType", dataType);
-						resultMap.put("dataLimit", dataLimit);
-						resultMap.put("nullYn", nullYn);
-						
-						String cellVal = StringUtil.clean(getValue(row.getCell(j)));
-						if (!StringUtil.isBlank(cellVal)) {
-							// 데이터 타입 체크
-							if ("Number".equals(dataType)) {
-								if (!NumberUtil.isNumeric(cellVal)) {
-									resultMap.put("result", "ERROR_DATA_TYPE");
-									break loop1;
-								}
-							} else if ("Date".equals(dataType)) {
-								if (StringUtil.isBlank(dataLimit)) {
-									if (!DateUtil.isDate(cellVal)) {
-										resultMap.put("result", "ERROR_DATA_TYPE");
-										break loop1;
-									}
-								} else {
-									if (!DateUtil.isDateFormat(StringUtil.left(cellVal, dataLimit.length()), dataLimit)) {
-										resultMap.put("result", "ERROR_DATA_TYPE");
-										break loop1;
-									}
-								}
-							}
-							// 데이터 길이 체크
-							if (!StringUtil.isBlank(dataLimit)) {
-								if ("Number".equals(dataType)) {
-									String num = NumberUtil.cleanDouble(cellVal).replaceAll("\\.", "");
-									if (num.length() > NumberUtil.toInt(dataLimit)) {
-										resultMap.put("result", "ERROR_DATA_LENGTH");
-										break loop1;
-									}
-								} else if ("String".equals(dataType)) {
-									if (StringUtil.getByteLen(cellVal) > NumberUtil.toInt(dataLimit)) {
-										resultMap.put("result", "ERROR_DATA_LENGTH");
-										break loop1;
-									}
-								}
-							}
-						}
-						// 필수항목 체크
-						if ("N".equals(nullYn) && StringUtil.isBlank(cellVal)) {
-							resultMap.put("result", "ERROR_DATA_NULL");
-							break loop1;
-						}
-					}
-				}
+		return resultMap;
+	}
+	
+	/**
+	 * <p>Cell 값의 유효성을 체크하고 오류가 있을 경우 오류 결과를 리턴한다.</p>
+	 * <p>호출할 때마다 유효성 정보를 해석하므로 여러 Cell을 체크할 경우 {@link ExcelSchema#check(int, String)}를 사용한다.</p>
+	 * 
+	 * <pre>
+	 * PoiExcel.validateValue("", *, *, "N")                 = "ERROR_DATA_NULL"
+	 * PoiExcel.validateValue("abc", "Number", *, *)         = "ERROR_DATA_TYPE"
+	 * PoiExcel.validateValue("12345", "Number", "3", *)     = "ERROR_DATA_LENGTH"
+	 * PoiExcel.validateValue("2023.09", "Date", "yyyy", *)  = null
+	 * PoiExcel.validateValue("아린", "String", "4", *)      = "ERROR_DATA_LENGTH" (기본 캐릭터셋 : UTF-8)
+	 * PoiExcel.validateValue("JJang", "String", "10", "Y")  = null
+	 * </pre>
+	 * 
+	 * @param cellVal   (체크할 Cell 값)
+	 * @param dataType  (데이터 타입 - Number, Date, String)
+	 * @param dataLimit (데이터 길이 또는 날짜 포멧)
+	 * @param nullYn    (Null 허용 여부)
+	 * @return String   (오류 결과, 정상일 경우 null)
+	 */
+	public static String validateValue(String cellVal, String dataType, String dataLimit, String nullYn) {
+		return ExcelSchema.compile(new String[][] {{"", dataType, dataLimit, nullYn}}).check(0, StringUtil.clean(cellVal));
+	}
+	
+	/**
+	 * <p>첫번째 오류에서 멈추지 않고 엑셀 데이터 전체를 병렬로 유효성 체크 후 오류 목록을 리턴한다.</p>
+	 * 
+	 * @param sheet                            (Sheet 객체)
+	 * @param validateArr                      (체크할 유효성 정보)
+	 * @param maxErrors                        (최대 오류 수)
+	 * @return {@literal List<ExcelViolation>} (오류 목록, 정상일 경우 빈 목록)
+	 */
+	public static List<ExcelViolation> validateAll(Sheet sheet, String[][] validateArr, int maxErrors) {
+		return ExcelSchema.compile(validateArr).validateAll(sheet, maxErrors);
+	}
+	
+	/**
+	 * <p>오류 목록의 Cell에 오류 배경색과 오류 메시지 메모를 표시한다.</p>
+	 * <p>업로드한 Workbook에 표시한 후 그대로 다운로드 받게 해서 한번에 모든 오류를 수정할 수 있게 한다.</p>
+	 * 
+	 * @param sheet         (Sheet 객체)
+	 * @param violationList (오류 목록)
+	 */
+	public static void markErrors(Sheet sheet, List<ExcelViolation> violationList) {
+		Workbook workbook = sheet.getWorkbook();
+		CreationHelper helper = workbook.getCreationHelper();
+		Drawing<?> drawing = sheet.createDrawingPatriarch();
+		ExcelStyleCache styleCache = new ExcelStyleCache(workbook);
+		for (ExcelViolation violation : violationList) {
+			if (violation.getColumnNo() < 0) {
+				continue;
+			}
+			Row row = sheet.getRow(violation.getRowNo());
+			if (row == null) {
+				row = sheet.createRow(violation.getRowNo());
+			}
+			Cell cell = row.getCell(violation.getColumnNo());
+			if (cell == null) {
+				cell = row.createCell(violation.getColumnNo(), CellType.BLANK);
 			}
+			// 원래 스타일별로 오류 스타일을 한번만 생성한다.
+			CellStyle errorStyle = styleCache.getFillStyle(cell.getCellStyle(), IndexedColors.ROSE.getIndex());
+			cell.setCellStyle(errorStyle);
+			// 오류 메시지 메모를 추가한다.
+			ClientAnchor anchor = helper.createClientAnchor();
+			anchor.setCol1(cell.getColumnIndex());
+			anchor.setCol2(cell.getColumnIndex() + 3);
+			anchor.setRow1(row.getRowNum());
+			anchor.setRow2(row.getRowNum() + 2);
+			Comment comment = drawing.createCellComment(anchor);
+			comment.setString(helper.createRichTextString(violation.getMessage()));
+			cell.setCellComment(comment);
 		}
-		
-		return resultMap;
 	}
 	
 	/**
@@ -312,7 +344,7 @@ public class PoiExcel {
 		CellStyle[] style = null;
 		if (workbook instanceof HSSFWorkbook) {
 			style = new HSSFCellStyle[point.x + 1];
-		} else if (workbook instanceof XSSFWorkbook) {
+		} else if (workbook instanceof XSSFWorkbook || workbook instanceof SXSSFWorkbook) {
 			style = new XSSFCellStyle[point.x + 1];
 		}
 		Row row = workbook.getSheetAt(sheetNo).getRow(point.y);
@@ -324,6 +356,7 @@ public class PoiExcel {
 	
 	/**
 	 * <p>해당하는 Sheet의 지정된 범위의 Cell을 병합하고 기본 스타일을 입힌다.</p>
+	 * <p>Workbook에 같은 속성의 기본 스타일이 있으면 그 스타일을 사용하므로 여러 번 호출해도 스타일이 늘어나지 않는다.</p>
 	 * 
 	 * @param sheet    (Sheet 객체)
 	 * @param firstRow (병합할 Row 시작위치)
@@ -332,22 +365,23 @@ public class PoiExcel {
 	 * @param lastCol  (병합할 Cell 끝위치)
 	 */
 	public static void addMergedRegion(Sheet sheet, int firstRow, int lastRow, int firstCol, int lastCol) {
-		// Font 를 설정한다.
-		Workbook workbook = sheet.getWorkbook();
-		Font font = workbook.createFont();
-		font.setFontName("맑은 고딕");
-		font.setFontHeightInPoints((short)10);
-		// Cell 스타일을 설정한다.
-		CellStyle style = workbook.createCellStyle();
-		style.setBorderTop(BorderStyle.THIN);
-		style.setBorderLeft(BorderStyle.THIN);
-		style.setBorderRight(BorderStyle.THIN);
-		style.setBorderBottom(BorderStyle.THIN);
-		style.setAlignment(HorizontalAlignment.CENTER);
-		style.setVerticalAlignment(VerticalAlignment.CENTER);
-		style.setFont(font);
+		addMergedRegion(sheet, firstRow, lastRow, firstCol, lastCol, new ExcelStyleCache(sheet.getWorkbook()));
+	}
+	
+	/**
+	 * <p>해당하는 Sheet의 지정된 범위의 Cell을 병합하고 스타일 캐시의 기본 스타일을 입힌다.</p>
+	 * <p>여러 번 병합할 때는 같은 스타일 캐시를 넘겨야 기본 스타일을 한번만 생성한다.</p>
+	 * 
+	 * @param sheet      (Sheet 객체)
+	 * @param firstRow   (병합할 Row 시작위치)
+	 * @param lastRow    (병합할 Row 끝위치)
+	 * @param firstCol   (병합할 Cell 시작위치)
+	 * @param lastCol    (병합할 Cell 끝위치)
+	 * @param styleCache (스타일 캐시)
+	 */
+	public static void addMergedRegion(Sheet sheet, int firstRow, int lastRow, int firstCol, int lastCol, ExcelStyleCache styleCache) {
 		// 병합할 Row 와 Cell 을 생성한다.
-		addMergedRegion(sheet, firstRow, lastRow, firstCol, lastCol, style);
+		addMergedRegion(sheet, firstRow, lastRow, firstCol, lastCol, styleCache.getDefaultStyle());
 	}
 	
 	/**
@@ -396,7 +430,112 @@ public class PoiExcel {
 			JsUtil.back(response, "Excel 파일 다운로드 실패!! ");
 		} finally {
 			if (sos != null) try { sos.close(); } catch (Exception e) {};
+			if (workbook instanceof SXSSFWorkbook) {
+				((SXSSFWorkbook) workbook).dispose();
+			}
+		}
+	}
+	
+	/**
+	 * <p>기본 Row 윈도우 크기로 스트리밍(SXSSF) Workbook을 생성한다.</p>
+	 * 
+	 * @return SXSSFWorkbook (스트리밍 Workbook 객체)
+	 */
+	public static SXSSFWorkbook createStreamWorkbook() {
+		return createStreamWorkbook(STREAM_WINDOW_SIZE);
+	}
+	
+	/**
+	 * <p>스트리밍(SXSSF) Workbook을 생성한다.</p>
+	 * <p>윈도우 크기를 넘어선 Row는 압축된 임시파일로 내려쓰므로 전체 Row 수와 상관없이 일정한 메모리만 사용한다.</p>
+	 * 
+	 * @param windowSize     (메모리에 유지할 Row 수)
+	 * @return SXSSFWorkbook (스트리밍 Workbook 객체)
+	 */
+	public static SXSSFWorkbook createStreamWorkbook(int windowSize) {
+		SXSSFWorkbook workbook = new SXSSFWorkbook(windowSize > 0 ? windowSize : STREAM_WINDOW_SIZE);
+		workbook.setCompressTempFiles(true);
+		return workbook;
+	}
+	
+	/**
+	 * <p>해당하는 Cell에 값의 타입에 맞게 값을 입력한다.</p>
+	 * 
+	 * <pre>
+	 * PoiExcel.setValue(cell, null)       = BLANK
+	 * PoiExcel.setValue(cell, 123.7)      = NUMERIC - 123.7
+	 * PoiExcel.setValue(cell, true)       = BOOLEAN - true
+	 * PoiExcel.setValue(cell, Date)       = STRING  - "2023-09-07 13:37:00"
+	 * PoiExcel.setValue(cell, " JJang  ") = STRING  - " JJang  "
+	 * </pre>
+	 * 
+	 * @param cell  (값을 입력할 Cell)
+	 * @param value (입력할 값)
+	 */
+	public static void setValue(Cell cell, Object value) {
+		if (value == null) {
+			cell.setCellType(CellType.BLANK);
+		} else if (value instanceof Number) {
+			cell.setCellValue(((Number) value).doubleValue());
+		} else if (value instanceof Boolean) {
+			cell.setCellValue((Boolean) value);
+		} else if (value instanceof Date) {
+			cell.setCellValue(DateUtil.toDateFormat(value, "yyyy-MM-dd HH:mm:ss"));
+		} else {
+			cell.setCellValue(StringUtil.toString(value));
+		}
+	}
+	
+	/**
+	 * <p>해당하는 Sheet에 Row를 생성하고 값과 스타일을 입력한다.</p>
+	 * 
+	 * @param sheet  (Sheet 객체)
+	 * @param rowNo  (생성할 Row 위치)
+	 * @param values (입력할 값)
+	 * @param styles (Cell 스타일, null 가능)
+	 * @return Row   (생성한 Row)
+	 */
+	public static Row addRow(Sheet sheet, int rowNo, Object[] values, CellStyle[] styles) {
+		Row row = sheet.createRow(rowNo);
+		for (int i = 0; i < values.length; i++) {
+			Cell cell = row.createCell(i);
+			setValue(cell, values[i]);
+			if (styles != null && styles.length > i && styles[i] != null) {
+				cell.setCellStyle(styles[i]);
+			}
+		}
+		return row;
+	}
+	
+	/**
+	 * <p>Row 데이터를 스트리밍(SXSSF) 방식으로 작성하면서 파일 생성없이 직접 다운로드한다.</p>
+	 * <p>Row 데이터는 Iterator에서 한 건씩 꺼내서 작성하므로 전체 데이터를 메모리에 올리지 않는다.</p>
+	 * 
+	 * @param request     (HttpServletRequest 객체)
+	 * @param response    (HttpServletResponse 객체)
+	 * @param fileName    (다운로드 받을 파일명)
+	 * @param sheetName   (Sheet 이름)
+	 * @param titles      (제목 Row, null 가능)
+	 * @param rowIterator (Row 데이터)
+	 */
+	public static void download(HttpServletRequest request, HttpServletResponse response, String fileName, String sheetName, String[] titles, Iterator<Object[]> rowIterator) {
+		SXSSFWorkbook workbook = createStreamWorkbook();
+		try {
+			Sheet sheet = workbook.createSheet(StringUtil.clean(sheetName, "Sheet1"));
+			int rowNo = 0;
+			if (titles != null) {
+				addRow(sheet, rowNo++, titles, null);
+			}
+			while (rowIterator.hasNext()) {
+				addRow(sheet, rowNo++, rowIterator.next(), null);
+			}
+		} catch (Exception e) {
+			workbook.dispose();
+			logger.error(ExceptionUtil.addMessage(e, "Excel 파일 작성 실패!! [파일명 : " + fileName + "]"));
+			JsUtil.back(response, "Excel 파일 다운로드 실패!! ");
+			return;
 		}
+		download(request, response, workbook, fileName);
 	}
 	
 }
\ No newline at end of file
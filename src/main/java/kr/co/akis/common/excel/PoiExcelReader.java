@@ -0,0 +1,318 @@
+/**
+ * ================================================================================================
+ * Copyright (c) 2003 JJang (Seon-joo, Jang)
+ * Licensed under the MIT license (http://www.opensource.org/licenses/MIT)
+ * 
+ * @Author      : Seon-joo, Jang (jeuse7@gmail.com)
+ * @File Name   : PoiExcelReader.java
+ * @Description : POI 이벤트(SAX) 방식 엑셀 읽기 클래스.
+ *                Sheet 전체를 메모리에 올리지 않고 xlsx Sheet XML을 이벤트 단위로 읽으면서
+ *                PoiExcel.validate 와 동일한 유효성 체크를 Row 단위로 처리한다.
+ * @Version     : 3.0.0
+ * ================================================================================================
+ */
+package kr.co.akis.common.excel;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.SAXHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+import kr.co.akis.util.DateUtil;
+import kr.co.akis.util.ExceptionUtil;
+import kr.co.akis.util.NumberUtil;
+import kr.co.akis.util.StringUtil;
+
+public class PoiExcelReader {
+	
+	private static final Logger logger = LoggerFactory.getLogger(PoiExcelReader.class);
+	
+	/** 콜백으로 넘겨줄 기본 Row 묶음 크기 */
+	public static final int DEFAULT_BATCH_SIZE = 1000;
+	
+	/**
+	 * <p>유효성 체크를 통과한 Row 묶음을 처리하는 콜백.</p>
+	 */
+	public interface RowHandler {
+		
+		/**
+		 * <p>유효성 체크를 통과한 Row 묶음을 처리한다.</p>
+		 * 
+		 * @param rowList    (Row 데이터 리스트, 각 Row는 유효성 정보의 컬럼 순서와 동일)
+		 * @throws Exception
+		 */
+		void handle(List<String[]> rowList) throws Exception;
+		
+	}
+	
+	/**
+	 * <p>xlsx 파일의 첫번째 Sheet를 읽으면서 유효성 체크 후 결과를 리턴한다.</p>
+	 * 
+	 * @param file                            (xlsx 파일)
+	 * @param validateArr                     (체크할 유효성 정보)
+	 * @param handler                         (Row 묶음 처리 콜백)
+	 * @return {@literal Map<String, Object>} (유효성 체크 결과)
+	 */
+	public static Map<String, Object> read(File file, String[][] validateArr, RowHandler handler) {
+		return read(file, ExcelSchema.compile(validateArr), DEFAULT_BATCH_SIZE, handler);
+	}
+	
+	/**
+	 * <p>xlsx 파일의 첫번째 Sheet를 읽으면서 유효성 체크 후 결과를 리턴한다.</p>
+	 * 
+	 * @param file                            (xlsx 파일)
+	 * @param validateArr                     (체크할 유효성 정보)
+	 * @param batchSize                       (Row 묶음 크기)
+	 * @param handler                         (Row 묶음 처리 콜백)
+	 * @return {@literal Map<String, Object>} (유효성 체크 결과)
+	 */
+	public static Map<String, Object> read(File file, String[][] validateArr, int batchSize, RowHandler handler) {
+		return read(file, ExcelSchema.compile(validateArr), batchSize, handler);
+	}
+	
+	/**
+	 * <p>xlsx 스트림의 첫번째 Sheet를 읽으면서 유효성 체크 후 결과를 리턴한다.</p>
+	 * 
+	 * @param is                              (xlsx 스트림)
+	 * @param validateArr                     (체크할 유효성 정보)
+	 * @param batchSize                       (Row 묶음 크기)
+	 * @param handler                         (Row 묶음 처리 콜백)
+	 * @return {@literal Map<String, Object>} (유효성 체크 결과)
+	 */
+	public static Map<String, Object> read(InputStream is, String[][] validateArr, int batchSize, RowHandler handler) {
+		return read(is, ExcelSchema.compile(validateArr), batchSize, handler);
+	}
+	
+	/**
+	 * <p>xlsx 파일의 첫번째 Sheet를 읽으면서 유효성 체크 후 결과를 리턴한다.</p>
+	 * <p>유효성 체크를 통과한 Row는 batchSize 단위로 콜백에 넘겨주며, 유효성 오류가 발생하면 그 즉시 읽기를 중단한다.</p>
+	 * <p>오류 이전에 넘겨준 Row 묶음이 있을 수 있으므로 콜백의 처리는 하나의 트랜잭션 안에서 수행해야 한다.</p>
+	 * 
+	 * @param file                            (xlsx 파일)
+	 * @param schema                          (체크할 유효성 정보 객체)
+	 * @param batchSize                       (Row 묶음 크기)
+	 * @param handler                         (Row 묶음 처리 콜백)
+	 * @return {@literal Map<String, Object>} (유효성 체크 결과)
+	 */
+	public static Map<String, Object> read(File file, ExcelSchema schema, int batchSize, RowHandler handler) {
+		Map<String, Object> resultMap = new HashMap<String, Object>();
+		OPCPackage pkg = null;
+		try {
+			pkg = OPCPackage.open(file, PackageAccess.READ);
+			read(pkg, schema, batchSize, handler, resultMap);
+		} catch (Exception e) {
+			logger.error(ExceptionUtil.addMessage(e, "Excel 파일 읽기 실패!! [파일경로 : " + file + "]"));
+			resultMap.put("result", "ERROR_SYSTEM");
+		} finally {
+			if (pkg != null) try { pkg.revert(); } catch (Exception e) {};
+		}
+		return resultMap;
+	}
+	
+	/**
+	 * <p>xlsx 스트림의 첫번째 Sheet를 읽으면서 유효성 체크 후 결과를 리턴한다.</p>
+	 * <p>스트림은 압축 해제된 파트를 메모리에 유지하므로 대용량 파일은 {@link #read(File, ExcelSchema, int, RowHandler)}를 사용한다.</p>
+	 * 
+	 * @param is                              (xlsx 스트림)
+	 * @param schema                          (체크할 유효성 정보 객체)
+	 * @param batchSize                       (Row 묶음 크기)
+	 * @param handler                         (Row 묶음 처리 콜백)
+	 * @return {@literal Map<String, Object>} (유효성 체크 결과)
+	 */
+	public static Map<String, Object> read(InputStream is, ExcelSchema schema, int batchSize, RowHandler handler) {
+		Map<String, Object> resultMap = new HashMap<String, Object>();
+		OPCPackage pkg = null;
+		try {
+			pkg = OPCPackage.open(is);
+			read(pkg, schema, batchSize, handler, resultMap);
+		} catch (Exception e) {
+			logger.error(ExceptionUtil.addMessage(e, "Excel 스트림 읽기 실패!!"));
+			resultMap.put("result", "ERROR_SYSTEM");
+		} finally {
+			if (pkg != null) try { pkg.revert(); } catch (Exception e) {};
+		}
+		return resultMap;
+	}
+	
+	/**
+	 * <p>OPC 패키지의 첫번째 Sheet XML을 SAX 방식으로 읽는다.</p>
+	 */
+	private static void read(OPCPackage pkg, ExcelSchema schema, int batchSize, RowHandler handler, Map<String, Object> resultMap) throws Exception {
+		XSSFReader reader = new XSSFReader(pkg);
+		ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+		StylesTable styles = reader.getStylesTable();
+		ValidateHandler validateHandler = new ValidateHandler(schema, batchSize, handler, resultMap);
+		XMLReader parser = SAXHelper.newXMLReader();
+		parser.setContentHandler(new XSSFSheetXMLHandler(styles, strings, validateHandler, new ValueFormatter(), false));
+		InputStream sheetStream = reader.getSheetsData().next();
+		try {
+			parser.parse(new InputSource(sheetStream));
+			validateHandler.finish();
+		} catch (StopReadException e) {
+			// 유효성 오류 또는 콜백 오류로 읽기 중단
+			if (e.getCause() != null) {
+				throw (Exception) e.getCause();
+			}
+		} finally {
+			sheetStream.close();
+		}
+	}
+	
+	/**
+	 * <p>PoiExcel.getValue 와 동일한 형식으로 날짜, 숫자 값을 만드는 DataFormatter.</p>
+	 */
+	private static class ValueFormatter extends DataFormatter {
+		
+		@Override
+		public String formatRawCellContents(double value, int formatIndex, String formatString, boolean use1904Windowing) {
+			if (org.apache.poi.ss.usermodel.DateUtil.isADateFormat(formatIndex, formatString) && org.apache.poi.ss.usermodel.DateUtil.isValidExcelDate(value)) {
+				return DateUtil.toDateFormat(org.apache.poi.ss.usermodel.DateUtil.getJavaDate(value, use1904Windowing), "yyyy-MM-dd HH:mm:ss", Locale.KOREA);
+			}
+			return NumberUtil.cleanDouble(NumberUtil.toDoubleStr(value), true);
+		}
+		
+	}
+	
+	/**
+	 * <p>읽기 중단용 예외.</p>
+	 */
+	private static class StopReadException extends RuntimeException {
+		
+		private static final long serialVersionUID = 1L;
+		
+		StopReadException(Throwable cause) {
+			super(cause);
+		}
+		
+	}
+	
+	/**
+	 * <p>Row 이벤트를 받아서 유효성 체크 후 Row 묶음을 콜백에 넘겨주는 Handler.</p>
+	 */
+	private static class ValidateHandler implements SheetContentsHandler {
+		
+		private final ExcelSchema schema;
+		private final int batchSize;
+		private final RowHandler handler;
+		private final Map<String, Object> resultMap;
+		private final List<String[]> rowList;
+		private String[] rowValues;
+		private int headerCnt = 0;
+		private boolean isHeaderChecked = false;
+		
+		ValidateHandler(ExcelSchema schema, int batchSize, RowHandler handler, Map<String, Object> resultMap) {
+			this.schema = schema;
+			this.batchSize = batchSize > 0 ? batchSize : DEFAULT_BATCH_SIZE;
+			this.handler = handler;
+			this.resultMap = resultMap;
+			this.rowList = new ArrayList<String[]>(this.batchSize);
+			this.resultMap.put("result", "SUCCESS");
+		}
+		
+		@Override
+		public void startRow(int rowNum) {
+			if (rowNum > 0 && !isHeaderChecked) {
+				checkHeader();
+			}
+			rowValues = new String[schema.getColumnCnt()];
+		}
+		
+		@Override
+		public void endRow(int rowNum) {
+			if (rowNum == 0) {
+				checkHeader();
+				return;
+			}
+			resultMap.put("rowNo", rowNum);
+			for (int j = 0; j < rowValues.length; j++) {
+				String cellVal = StringUtil.clean(rowValues[j]);
+				String error = schema.check(j, cellVal);
+				if (error != null) {
+					resultMap.putAll(new ExcelViolation(rowNum, j, error, schema.getColumn(j)).toMap());
+					throw new StopReadException(null);
+				}
+				rowValues[j] = cellVal;
+			}
+			rowList.add(rowValues);
+			if (rowList.size() >= batchSize) {
+				flush();
+			}
+		}
+		
+		@Override
+		public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+			if (rowValues == null) {
+				return;
+			}
+			int colNo = new CellReference(cellReference).getCol();
+			if (!isHeaderChecked) {
+				headerCnt++;
+			}
+			if (colNo < rowValues.length) {
+				rowValues[colNo] = formattedValue;
+			}
+		}
+		
+		@Override
+		public void headerFooter(String text, boolean isHeader, String tagName) {
+		}
+		
+		/**
+		 * <p>제목 Row의 컬럼 수를 체크한다.</p>
+		 */
+		private void checkHeader() {
+			isHeaderChecked = true;
+			if (headerCnt != schema.getColumnCnt()) {
+				resultMap.put("result", "ERROR_COLUMN_CNT");
+				throw new StopReadException(null);
+			}
+		}
+		
+		/**
+		 * <p>남은 Row 묶음을 콜백에 넘겨준다.</p>
+		 */
+		private void flush() {
+			if (rowList.isEmpty()) {
+				return;
+			}
+			try {
+				handler.handle(new ArrayList<String[]>(rowList));
+			} catch (Exception e) {
+				throw new StopReadException(e);
+			} finally {
+				rowList.clear();
+			}
+		}
+		
+		/**
+		 * <p>Sheet 읽기 완료 후 남은 Row를 처리한다.</p>
+		 */
+		void finish() {
+			if (!isHeaderChecked) {
+				checkHeader();
+			}
+			flush();
+		}
+		
+	}
+	
+}
@@ -0,0 +1,61 @@
+/**
+ * ================================================================================================
+ * Copyright (c) 2003 JJang (Seon-joo, Jang)
+ * Licensed under the MIT license (http://www.opensource.org/licenses/MIT)
+ * 
+ * @Author      : Seon-joo, Jang (jeuse7@gmail.com)
+ * @File Name   : ChecksumStage.java
+ * @Description : 업로드 후처리 - 파일 내용 해시(SHA-256) 계산 단계.
+ *                업로드할 때 이미 계산한 해시(fileHash)가 있으면 다시 읽지 않는다.
+ * @Version     : 3.0.0
+ * ================================================================================================
+ */
+package kr.co.akis.common.upload;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.Map;
+
+import kr.co.akis.util.FileDedupStore;
+import kr.co.akis.util.StringUtil;
+
+public class ChecksumStage implements UploadPipeline.Stage {
+	
+	/** 파일 읽기 버퍼 크기 */
+	private static final int BUFFER_SIZE = 64 * 1024;
+	
+	@Override
+	public String getName() {
+		return "checksum";
+	}
+	
+	/**
+	 * <p>파일 내용 해시를 리턴한다.</p>
+	 * 
+	 * @param file    (업로드된 파일)
+	 * @param fileMap (파일정보)
+	 * @return String (내용 해시 - 16진수 소문자)
+	 * @throws Exception
+	 */
+	@Override
+	public String process(File file, Map<String, String> fileMap) throws Exception {
+		if (!StringUtil.isBlank(fileMap.get("fileHash"))) {
+			return fileMap.get("fileHash");
+		}
+		MessageDigest md = MessageDigest.getInstance(FileDedupStore.HASH_ALGORITHM);
+		InputStream is = new FileInputStream(file);
+		try {
+			byte[] b = new byte[BUFFER_SIZE];
+			int len = 0;
+			while ((len = is.read(b)) != -1) {
+				md.update(b, 0, len);
+			}
+		} finally {
+			is.close();
+		}
+		return FileDedupStore.toHex(md.digest());
+	}
+	
+}
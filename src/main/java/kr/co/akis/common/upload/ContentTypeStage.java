@@ -0,0 +1,89 @@
+/**
+ * ================================================================================================
+ * Copyright (c) 2003 JJang (Seon-joo, Jang)
+ * Licensed under the MIT license (http://www.opensource.org/licenses/MIT)
+ * 
+ * @Author      : Seon-joo, Jang (jeuse7@gmail.com)
+ * @File Name   : ContentTypeStage.java
+ * @Description : 업로드 후처리 - 파일 앞부분(매직 넘버)으로 실제 콘텐츠타입을 확인하는 단계.
+ *                브라우저가 보낸 콘텐츠타입과 확장자는 사용자가 바꿀 수 있으므로 실제 내용으로 다시 확인한다.
+ *                결과는 "확인한 콘텐츠타입" 이며 확장자와 맞지 않으면 "확인한 콘텐츠타입;mismatch" 이다.
+ * @Version     : 3.0.0
+ * ================================================================================================
+ */
+package kr.co.akis.common.upload;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.net.URLConnection;
+import java.util.Map;
+
+import kr.co.akis.util.FileUtil;
+import kr.co.akis.util.StringUtil;
+
+public class ContentTypeStage implements UploadPipeline.Stage {
+	
+	/** {매직 넘버(16진수), 콘텐츠타입, 허용 확장자} */
+	private static final String[][] MAGIC_ARR = {
+		{"25504446", "application/pdf", "pdf"},
+		{"89504e47", "image/png", "png"},
+		{"ffd8ff", "image/jpeg", "jpg|jpeg"},
+		{"47494638", "image/gif", "gif"},
+		{"504b0304", "application/zip", "zip|jar|docx|xlsx|pptx|hwpx|odt|ods|odp"},
+		{"d0cf11e0a1b11ae1", "application/x-ole-storage", "hwp|doc|xls|ppt|msg"},
+		{"1f8b", "application/gzip", "gz|tgz"},
+		{"377abcaf271c", "application/x-7z-compressed", "7z"},
+		{"52617221", "application/vnd.rar", "rar"},
+		{"4d5a", "application/x-msdownload", "exe|dll"}
+	};
+	
+	@Override
+	public String getName() {
+		return "contentType";
+	}
+	
+	/**
+	 * <p>파일 앞부분으로 확인한 콘텐츠타입을 리턴한다.</p>
+	 * 
+	 * @param file    (업로드된 파일)
+	 * @param fileMap (파일정보)
+	 * @return String (확인한 콘텐츠타입, 확장자와 맞지 않으면 ";mismatch" 추가)
+	 * @throws Exception
+	 */
+	@Override
+	public String process(File file, Map<String, String> fileMap) throws Exception {
+		byte[] head = new byte[16];
+		int headLen = 0;
+		InputStream is = new BufferedInputStream(new FileInputStream(file));
+		try {
+			is.mark(head.length);
+			int len = 0;
+			while (headLen < head.length && (len = is.read(head, headLen, head.length - headLen)) != -1) {
+				headLen += len;
+			}
+			String fileExt = FileUtil.getFileExtLowerCase(StringUtil.clean(fileMap.get("orgnName"), file.getName()));
+			String headHex = toHex(head, headLen);
+			for (String[] magic : MAGIC_ARR) {
+				if (headHex.startsWith(magic[0])) {
+					return StringUtil.equalsSplit(magic[2], fileExt, "[|]") ? magic[1] : magic[1] + ";mismatch";
+				}
+			}
+			is.reset();
+			String contentType = URLConnection.guessContentTypeFromStream(is);
+			return contentType == null ? "application/octet-stream" : contentType;
+		} finally {
+			is.close();
+		}
+	}
+	
+	private static String toHex(byte[] bytes, int len) {
+		StringBuilder sb = new StringBuilder(len * 2);
+		for (int i = 0; i < len; i++) {
+			sb.append(Character.forDigit((bytes[i] >> 4) & 0x0f, 16)).append(Character.forDigit(bytes[i] & 0x0f, 16));
+		}
+		return sb.toString();
+	}
+	
+}
@@ -0,0 +1,452 @@
+/**
+ * ================================================================================================
+ * Copyright (c) 2003 JJang (Seon-joo, Jang)
+ * Licensed under the MIT license (http://www.opensource.org/licenses/MIT)
+ * 
+ * @Author      : Seon-joo, Jang (jeuse7@gmail.com)
+ * @File Name   : OrphanSweeper.java
+ * @Description : 업로드 경로에서 DB 가 참조하지 않는 파일(고아 파일)을 정리하는 클래스.
+ *                1. ReferenceSource 로 DB 의 첨부파일 목록(savePath, saveName)을 한 건씩 받아 블룸 필터에 담는다.
+ *                2. ReferenceSource 가 참조를 모두 제공하는 루트 경로(getRootPaths)만 Files.walkFileTree 로 돌며
+ *                   블룸 필터에 없는 파일을 격리 경로(/quarantine/yyyyMMdd)로 옮긴다. 분산 디렉토리는 모든 단계(0 ~ 4)를 빼 보고 비교한다.
+ *                   다른 모듈의 파일까지 고아로 판단하지 않도록 업로드 경로 전체는 루트로 지정할 수 없다.
+ *                3. 격리한 지 upload.sweeper.quarantineDays 일이 지난 파일을 삭제한다.
+ *                블룸 필터는 없는 파일을 있다고 잘못 판단할 수는 있어도(고아 파일을 남김) 있는 파일을 없다고 하지 않으므로
+ *                참조중인 파일을 옮기지 않는다. 업로드 직후 아직 DB 에 저장되지 않은 파일은 minAge 시간이 지나야 대상이 된다.
+ *                파일 검사, 이동은 초당 upload.sweeper.rate 개로 제한해서 서비스 I/O 와 경쟁하지 않게 한다.
+ *                  - upload.sweeper.interval       : 실행 간격 (시간, 0 이면 자동 실행 안함)
+ *                  - upload.sweeper.minAge         : 대상 파일 최소 경과 시간 (시간, 기본 24)
+ *                  - upload.sweeper.expectedCnt    : 예상 참조 파일 수 (블룸 필터 크기, 기본 1000000)
+ *                  - upload.sweeper.rate           : 초당 검사 파일 수 (기본 500, 0 이면 제한없음)
+ *                  - upload.sweeper.maxCnt         : 한 번에 격리하는 최대 파일 수 (기본 10000)
+ *                  - upload.sweeper.quarantineDays : 격리 보관 일수 (기본 7)
+ * @Version     : 3.0.0
+ * ================================================================================================
+ */
+package kr.co.akis.common.upload;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import kr.co.akis.util.Const;
+import kr.co.akis.util.ExceptionUtil;
+import kr.co.akis.util.FileShard;
+import kr.co.akis.util.FileTree;
+import kr.co.akis.util.FileUtil;
+import kr.co.akis.util.StringUtil;
+
+public class OrphanSweeper {
+	
+	private static final Logger logger = LoggerFactory.getLogger(OrphanSweeper.class);
+	
+	/** 격리 서브경로 (업로드 경로 기준) */
+	public static final String QUARANTINE_PATH = "/quarantine";
+	
+	private static final long INTERVAL_HOURS = Const.properties.getLong("upload.sweeper.interval", 0);
+	
+	private static final long MIN_AGE_MILLIS = TimeUnit.HOURS.toMillis(Const.properties.getLong("upload.sweeper.minAge", 24));
+	
+	private static final int EXPECTED_CNT = Const.properties.getInt("upload.sweeper.expectedCnt", 1000000);
+	
+	private static final int RATE = Const.properties.getInt("upload.sweeper.rate", 500);
+	
+	private static final int MAX_CNT = Const.properties.getInt("upload.sweeper.maxCnt", 10000);
+	
+	private static final int QUARANTINE_DAYS = Const.properties.getInt("upload.sweeper.quarantineDays", 7);
+	
+	/** 실행 중 여부 (동시에 두 번 실행하지 않는다.) */
+	private static final AtomicBoolean isRunning = new AtomicBoolean(false);
+	
+	private static ScheduledExecutorService scheduler = null;
+	
+	/**
+	 * <p>DB 가 참조하는 첨부파일 목록을 제공하는 인터페이스.</p>
+	 * <p>보통 fetchSize, resultSetType="FORWARD_ONLY" 를 지정한 Mapper 조회에 handler 를 그대로 넘긴다.
+	 * 결과 Map 에는 savePath(업로드 경로 기준), saveName 이 있어야 한다.</p>
+	 * 
+	 * <pre>
+	 * OrphanSweeper.start(new OrphanSweeper.ReferenceSource() {
+	 *     public String[] getRootPaths() {
+	 *         return new String[] {"/bbs"};
+	 *     }
+	 *     public void fetch(ResultHandler&lt;Map&lt;String, Object&gt;&gt; handler) throws Exception {
+	 *         bbsMapper.selectFileList(handler);
+	 *     }
+	 * });
+	 * </pre>
+	 */
+	public interface ReferenceSource {
+		
+		/**
+		 * <p>정리할 루트 경로 목록(업로드 경로 기준, 예: /bbs)을 리턴한다.
+		 * fetch 가 이 경로 아래 파일의 참조를 모두 제공해야 하며 이 경로 아래만 정리한다.</p>
+		 * 
+		 * @return String[] (루트 경로 목록)
+		 */
+		String[] getRootPaths();
+		
+		/**
+		 * <p>참조 파일 목록을 한 건씩 handler 로 넘긴다. 예외가 발생하면 정리를 중단한다.</p>
+		 * 
+		 * @param handler (결과 처리 Handler)
+		 * @throws Exception
+		 */
+		void fetch(ResultHandler<Map<String, Object>> handler) throws Exception;
+		
+	}
+	
+	/**
+	 * <p>upload.sweeper.interval 간격으로 정리를 실행한다. 간격이 0 이면 실행하지 않는다.</p>
+	 * 
+	 * @param source (참조 파일 목록 제공 객체)
+	 */
+	public static synchronized void start(final ReferenceSource source) {
+		if (INTERVAL_HOURS <= 0 || scheduler != null) {
+			return;
+		}
+		scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "upload-sweeper");
+				thread.setDaemon(true);
+				thread.setPriority(Thread.MIN_PRIORITY);
+				return thread;
+			}
+		});
+		scheduler.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				// 예외가 나가면 이후 실행이 취소되므로 여기서 처리한다.
+				try {
+					sweep(source, false);
+				} catch (Exception e) {
+					logger.error(ExceptionUtil.addMessage(e, "업로드 파일 정리 실패!!"));
+				}
+			}
+		}, 1, INTERVAL_HOURS * 60, TimeUnit.MINUTES);
+		logger.info("업로드 파일 정리 시작 [실행 간격 : " + INTERVAL_HOURS + "시간]");
+	}
+	
+	/**
+	 * <p>정리 쓰레드를 종료한다. 애플리케이션 종료시 호출한다.</p>
+	 */
+	public static synchronized void shutdown() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+			scheduler = null;
+		}
+	}
+	
+	/**
+	 * <p>고아 파일을 격리하고, 보관일수가 지난 격리 파일을 삭제한다.</p>
+	 * 
+	 * <pre>
+	 * OrphanSweeper.sweep(source, true)  = 격리할 대상 수 (옮기지 않음)
+	 * OrphanSweeper.sweep(source, false) = 정리 결과
+	 * OrphanSweeper.sweep(실행 중, *)    = null
+	 * OrphanSweeper.sweep(루트 경로 오류, *) = null
+	 * </pre>
+	 * 
+	 * @param source   (참조 파일 목록 제공 객체)
+	 * @param isDryRun (옮기지 않고 대상만 셀지 여부)
+	 * @return Map     (refCnt(참조 파일 수), scanCnt(검사 파일 수), orphanCnt(고아 파일 수), orphanSize(고아 파일 크기), purgeCnt(삭제한 격리 디렉토리 수))
+	 */
+	public static Map<String, Object> sweep(ReferenceSource source, boolean isDryRun) {
+		if (!isRunning.compareAndSet(false, true)) {
+			logger.warn("업로드 파일 정리가 이미 실행 중입니다.");
+			return null;
+		}
+		try {
+			long startTime = System.currentTimeMillis();
+			Map<String, Object> resultMap = new HashMap<String, Object>();
+			List<Path> rootPaths = getRootPaths(source.getRootPaths());
+			if (rootPaths == null) {
+				return null;
+			}
+			// 1. 참조 파일 목록 (중간에 실패하면 참조 파일을 고아로 판단하게 되므로 정리하지 않는다.)
+			final BloomFilter bloomFilter = new BloomFilter(EXPECTED_CNT);
+			final long[] refCnt = {0};
+			try {
+				source.fetch(new ResultHandler<Map<String, Object>>() {
+					@Override
+					public void handleResult(ResultContext<? extends Map<String, Object>> context) {
+						Map<String, Object> fileMap = context.getResultObject();
+						String key = getKey(StringUtil.clean(fileMap.get("savePath")), StringUtil.clean(fileMap.get("saveName")));
+						if (key != null) {
+							bloomFilter.add(key);
+							refCnt[0]++;
+						}
+					}
+				});
+			} catch (Exception e) {
+				logger.error(ExceptionUtil.addMessage(e, "참조 파일 목록 조회 실패!! 업로드 파일 정리를 중단합니다."));
+				return null;
+			}
+			if (refCnt[0] == 0) {
+				logger.warn("참조 파일이 없습니다. 조회 오류일 수 있으므로 업로드 파일 정리를 중단합니다.");
+				return null;
+			}
+			if (refCnt[0] > EXPECTED_CNT) {
+				logger.warn("참조 파일 수가 예상보다 많아서 남는 고아 파일이 늘어납니다. upload.sweeper.expectedCnt 를 늘려주세요. [참조 파일 수 : " + refCnt[0] + "]");
+			}
+			resultMap.put("refCnt", refCnt[0]);
+			// 2. 루트 경로 검사, 격리
+			scan(rootPaths, bloomFilter, startTime - MIN_AGE_MILLIS, isDryRun, resultMap);
+			// 3. 보관일수가 지난 격리 파일 삭제
+			resultMap.put("purgeCnt", purge(isDryRun));
+			resultMap.put("isDryRun", isDryRun);
+			resultMap.put("elapsed", System.currentTimeMillis() - startTime);
+			logger.info("업로드 파일 정리" + (isDryRun ? "(dry run)" : "") + " [결과 : " + resultMap + "]");
+			return resultMap;
+		} finally {
+			isRunning.set(false);
+		}
+	}
+	
+	/**
+	 * <p>루트 경로 목록을 업로드 경로 아래의 실제 경로로 바꾼다.
+	 * 비어있거나, 업로드 경로 전체이거나, 업로드 경로 밖이거나, 제외 경로이면 null 을 리턴한다.</p>
+	 */
+	private static List<Path> getRootPaths(String[] rootPaths) {
+		if (rootPaths == null || rootPaths.length == 0) {
+			logger.warn("정리할 루트 경로가 없습니다. 업로드 파일 정리를 중단합니다.");
+			return null;
+		}
+		Path uploadPath = new File(FileUtil.cleanPath(Const.UPLOAD_PATH)).toPath().normalize();
+		List<Path> pathList = new ArrayList<Path>();
+		for (String rootPath : rootPaths) {
+			String subPath = StringUtil.isBlank(rootPath) ? "" : FileUtil.cleanPath(rootPath, "/").replaceAll("^/+|/+$", "");
+			Path path = uploadPath.resolve(subPath).normalize();
+			if (subPath.isEmpty() || path.equals(uploadPath) || !path.startsWith(uploadPath) || isExcludePath(path, uploadPath)) {
+				logger.warn("정리할 수 없는 루트 경로입니다. 업로드 파일 정리를 중단합니다. [루트 경로 : " + rootPath + "]");
+				return null;
+			}
+			pathList.add(path);
+		}
+		return pathList;
+	}
+	
+	/**
+	 * <p>제외 경로(격리, 썸네일 등)이거나 그 아래 경로인지 체크한다.</p>
+	 */
+	private static boolean isExcludePath(Path path, Path uploadPath) {
+		for (Path dir = path; dir != null && !dir.equals(uploadPath); dir = dir.getParent()) {
+			if (FileShard.isExcludePath(dir)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * <p>루트 경로 아래를 돌며 참조하지 않는 파일을 격리 경로로 옮긴다.</p>
+	 */
+	private static void scan(List<Path> rootPaths, final BloomFilter bloomFilter, final long maxModified, final boolean isDryRun, final Map<String, Object> resultMap) {
+		final Path uploadPath = new File(FileUtil.cleanPath(Const.UPLOAD_PATH)).toPath().normalize();
+		final Path quarantinePath = uploadPath.resolve(QUARANTINE_PATH.substring(1)).resolve(new SimpleDateFormat("yyyyMMdd").format(new Date()));
+		final long[] counts = {0, 0, 0};
+		final long sleepMillis = RATE > 0 ? 1000L * 100 / RATE : 0;
+		for (Path rootPath : rootPaths) {
+			if (counts[1] >= MAX_CNT || Thread.currentThread().isInterrupted()) {
+				break;
+			}
+			if (Files.isDirectory(rootPath)) {
+				scan(rootPath, uploadPath, quarantinePath, bloomFilter, maxModified, isDryRun, sleepMillis, counts);
+			}
+		}
+		resultMap.put("scanCnt", counts[0]);
+		resultMap.put("orphanCnt", counts[1]);
+		resultMap.put("orphanSize", counts[2]);
+	}
+	
+	private static void scan(Path rootPath, final Path uploadPath, final Path quarantinePath, final BloomFilter bloomFilter, final long maxModified,
+			final boolean isDryRun, final long sleepMillis, final long[] counts) {
+		try {
+			Files.walkFileTree(rootPath, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+					return FileShard.isExcludePath(dir) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+				}
+				
+				@Override
+				public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+					// 100개마다 쉬어서 초당 검사 수를 RATE 로 제한한다.
+					if (++counts[0] % 100 == 0 && sleepMillis > 0) {
+						try {
+							Thread.sleep(sleepMillis);
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+							return FileVisitResult.TERMINATE;
+						}
+					}
+					if (!attrs.isRegularFile() || attrs.lastModifiedTime().toMillis() > maxModified) {
+						return FileVisitResult.CONTINUE;
+					}
+					Path relPath = uploadPath.relativize(file);
+					// 부속 파일은 원본 파일명으로 참조 여부를 판단한다.
+					String saveName = FileShard.getBaseName(file.getFileName().toString());
+					String savePath = relPath.getParent() == null ? "" : FileUtil.cleanPath("/" + relPath.getParent().toString(), "/");
+					if (isReferenced(bloomFilter, savePath, saveName)) {
+						return FileVisitResult.CONTINUE;
+					}
+					if (!isDryRun) {
+						Path target = quarantinePath.resolve(relPath.toString());
+						Files.createDirectories(target.getParent());
+						Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+					}
+					counts[2] += attrs.size();
+					if (++counts[1] >= MAX_CNT) {
+						logger.info("한 번에 격리하는 최대 파일 수에 도달했습니다. 나머지는 다음 실행에서 정리합니다. [upload.sweeper.maxCnt : " + MAX_CNT + "]");
+						return FileVisitResult.TERMINATE;
+					}
+					return FileVisitResult.CONTINUE;
+				}
+				
+				@Override
+				public FileVisitResult visitFileFailed(Path file, IOException e) {
+					logger.warn("업로드 파일 검사 실패 [파일경로 : " + file + ", 사유 : " + e.toString() + "]");
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		} catch (Exception e) {
+			logger.error(ExceptionUtil.addMessage(e, "업로드 파일 검사 실패!! [경로 : " + rootPath + "]"));
+		}
+	}
+	
+	/**
+	 * <p>파일이 참조 파일인지 체크한다. file.shard.depth 를 바꾸기 전 단계로 저장된 파일도 있으므로
+	 * 저장경로가 끝나는 모든 단계(0 ~ MAX_DEPTH)의 분산 서브경로를 빼 보고 하나라도 참조하면 참조 파일로 판단한다.</p>
+	 */
+	private static boolean isReferenced(BloomFilter bloomFilter, String savePath, String saveName) {
+		String[] shardPaths = FileShard.getShardPaths(saveName);
+		for (int depth = 0; depth <= FileShard.MAX_DEPTH; depth++) {
+			if (savePath.endsWith(shardPaths[depth]) && bloomFilter.mightContain(getKey(savePath.substring(0, savePath.length() - shardPaths[depth].length()), saveName))) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * <p>보관일수가 지난 격리 디렉토리(/quarantine/yyyyMMdd)를 삭제하고 삭제한 디렉토리 수를 리턴한다.</p>
+	 */
+	private static int purge(boolean isDryRun) {
+		File[] dirs = new File(FileUtil.cleanPath(Const.UPLOAD_PATH + QUARANTINE_PATH)).listFiles();
+		if (dirs == null) {
+			return 0;
+		}
+		String expireDate = new SimpleDateFormat("yyyyMMdd").format(new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(QUARANTINE_DAYS)));
+		int purgeCnt = 0;
+		for (File dir : dirs) {
+			if (dir.isDirectory() && dir.getName().matches("\\d{8}") && dir.getName().compareTo(expireDate) < 0) {
+				if (isDryRun || FileTree.delete(dir, false, null) != null) {
+					purgeCnt++;
+				}
+			}
+		}
+		return purgeCnt;
+	}
+	
+	/**
+	 * <p>참조 비교 키 (업로드 경로 기준 저장경로/저장파일명). 저장경로가 전체 경로이면 업로드 경로를 뺀다.</p>
+	 */
+	private static String getKey(String savePath, String saveName) {
+		if (StringUtil.isBlank(saveName)) {
+			return null;
+		}
+		String uploadPath = FileUtil.cleanPath(Const.UPLOAD_PATH, "/");
+		savePath = FileUtil.cleanPath("/" + savePath, "/");
+		if (savePath.startsWith(uploadPath + "/") || savePath.equals(uploadPath)) {
+			savePath = savePath.substring(uploadPath.length());
+		}
+		while (savePath.endsWith("/")) {
+			savePath = savePath.substring(0, savePath.length() - 1);
+		}
+		return savePath + "/" + saveName;
+	}
+	
+	/**
+	 * <p>블룸 필터 (오탐율 1%). 참조 파일 수 백만 건에 약 1.2MB 를 사용한다.</p>
+	 */
+	private static class BloomFilter {
+		
+		private final long[] bits;
+		
+		private final long bitSize;
+		
+		private final int hashCnt;
+		
+		BloomFilter(int expectedCnt) {
+			// m = -n ln(p) / (ln 2)^2, k = m / n ln 2 (p = 0.01)
+			long m = (long) Math.ceil(-Math.max(1, expectedCnt) * Math.log(0.01) / (Math.log(2) * Math.log(2)));
+			this.bits = new long[(int) ((m + 63) / 64)];
+			this.bitSize = bits.length * 64L;
+			this.hashCnt = Math.max(1, (int) Math.round((double) m / Math.max(1, expectedCnt) * Math.log(2)));
+		}
+		
+		void add(String key) {
+			long hash = hash(key);
+			long h1 = hash;
+			long h2 = mix(hash);
+			for (int i = 0; i < hashCnt; i++) {
+				long bit = ((h1 + i * h2) & Long.MAX_VALUE) % bitSize;
+				bits[(int) (bit >>> 6)] |= 1L << bit;
+			}
+		}
+		
+		boolean mightContain(String key) {
+			long hash = hash(key);
+			long h1 = hash;
+			long h2 = mix(hash);
+			for (int i = 0; i < hashCnt; i++) {
+				long bit = ((h1 + i * h2) & Long.MAX_VALUE) % bitSize;
+				if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+					return false;
+				}
+			}
+			return true;
+		}
+		
+		/** FNV-1a 64bit */
+		private static long hash(String key) {
+			long hash = 0xcbf29ce484222325L;
+			for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+				hash ^= b & 0xff;
+				hash *= 0x100000001b3L;
+			}
+			return hash;
+		}
+		
+		/** 두 번째 해시 (splitmix64 마무리 연산) */
+		private static long mix(long hash) {
+			hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+			hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+			return (hash ^ (hash >>> 31)) | 1;
+		}
+		
+	}
+	
+}
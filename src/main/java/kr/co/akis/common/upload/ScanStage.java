@@ -0,0 +1,128 @@
+/**
+ * ================================================================================================
+ * Copyright (c) 2003 JJang (Seon-joo, Jang)
+ * Licensed under the MIT license (http://www.opensource.org/licenses/MIT)
+ * 
+ * @Author      : Seon-joo, Jang (jeuse7@gmail.com)
+ * @File Name   : ScanStage.java
+ * @Description : 업로드 후처리 - 바이러스 검사 단계 (로컬 검사 연동 예제).
+ *                upload.pipeline.scanCommand 가 있으면 외부 검사 프로그램을 실행하고 (예: clamdscan --no-summary {file})
+ *                종료 코드 0은 정상, 1은 감염, 그 외는 검사 오류로 처리한다.
+ *                설정이 없으면 EICAR 테스트 문자열만 검사하는 예제로 동작하며 바이러스 검사를 한 것이 아니므로 결과는 NOT_SCANNED 이다.
+ *                감염된 파일은 "저장파일명.infected" 로 이름을 바꿔서 다운로드 되지 않게 한다.
+ * @Version     : 3.0.0
+ * ================================================================================================
+ */
+package kr.co.akis.common.upload;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import kr.co.akis.util.Const;
+import kr.co.akis.util.FileShard;
+import kr.co.akis.util.StringUtil;
+
+public class ScanStage implements UploadPipeline.Stage {
+	
+	private static final Logger logger = LoggerFactory.getLogger(ScanStage.class);
+	
+	/** 외부 검사 프로그램 명령 ({file} 은 검사할 파일 경로로 바뀐다.) */
+	private static final String SCAN_COMMAND = Const.properties.getString("upload.pipeline.scanCommand", "");
+	
+	/** 외부 검사 프로그램 최대 실행 시간 (초) */
+	private static final int SCAN_TIMEOUT = Const.properties.getInt("upload.pipeline.scanTimeout", 300);
+	
+	/** EICAR 테스트 문자열 (실제 악성코드가 아닌 백신 동작 확인용 표준 문자열) */
+	private static final byte[] EICAR = "X5O!P%@AP[4\\PZX54(P^)7CC)7}$EICAR-STANDARD-ANTIVIRUS-TEST-FILE!$H+H*".getBytes(StandardCharsets.US_ASCII);
+	
+	@Override
+	public String getName() {
+		return "scan";
+	}
+	
+	/**
+	 * <p>파일을 검사하고 결과를 리턴한다. 감염된 파일은 이름을 바꾸고 예외를 발생시켜 이후 단계를 중단한다.</p>
+	 * 
+	 * @param file    (업로드된 파일)
+	 * @param fileMap (파일정보)
+	 * @return String (검사 결과 - CLEAN, 검사 프로그램이 없으면 NOT_SCANNED)
+	 * @throws Exception
+	 */
+	@Override
+	public String process(File file, Map<String, String> fileMap) throws Exception {
+		boolean isScanner = !StringUtil.isBlank(SCAN_COMMAND);
+		boolean isInfected = isScanner ? runCommand(file) : containsEicar(file);
+		if (isInfected) {
+			File infectedFile = new File(file.getParentFile(), file.getName() + FileShard.INFECTED_EXT);
+			if (!file.renameTo(infectedFile)) {
+				logger.error("감염 파일 이름 변경 실패 [파일경로 : " + file + "]");
+			}
+			throw new SecurityException("INFECTED");
+		}
+		return isScanner ? "CLEAN" : "NOT_SCANNED";
+	}
+	
+	/**
+	 * <p>외부 검사 프로그램을 실행하고 감염 여부를 리턴한다.</p>
+	 */
+	private static boolean runCommand(File file) throws Exception {
+		List<String> command = new ArrayList<String>();
+		for (String arg : SCAN_COMMAND.trim().split("\\s+")) {
+			command.add("{file}".equals(arg) ? file.getCanonicalPath() : arg);
+		}
+		// 출력은 파일로 받는다. (파이프 버퍼가 차서 검사 프로그램이 멈추지 않게 한다.)
+		File logFile = File.createTempFile("scan", ".log");
+		try {
+			Process process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(logFile).start();
+			if (!process.waitFor(SCAN_TIMEOUT, TimeUnit.SECONDS)) {
+				process.destroyForcibly();
+				throw new IllegalStateException("바이러스 검사 시간 초과");
+			}
+			int exitCode = process.exitValue();
+			if (exitCode > 1) {
+				throw new IllegalStateException("바이러스 검사 오류 [종료 코드 : " + exitCode + ", 출력 : " + new String(Files.readAllBytes(logFile.toPath())).trim() + "]");
+			}
+			return exitCode == 1;
+		} finally {
+			logFile.delete();
+		}
+	}
+	
+	/**
+	 * <p>파일에 EICAR 테스트 문자열이 있는지 검사한다. (EICAR 파일은 작으므로 앞부분만 검사)</p>
+	 */
+	private static boolean containsEicar(File file) throws Exception {
+		byte[] head = new byte[1024];
+		int headLen = 0;
+		InputStream is = new FileInputStream(file);
+		try {
+			int len = 0;
+			while (headLen < head.length && (len = is.read(head, headLen, head.length - headLen)) != -1) {
+				headLen += len;
+			}
+		} finally {
+			is.close();
+		}
+		outer:
+		for (int i = 0; i <= headLen - EICAR.length; i++) {
+			for (int j = 0; j < EICAR.length; j++) {
+				if (head[i + j] != EICAR[j]) {
+					continue outer;
+				}
+			}
+			return true;
+		}
+		return false;
+	}
+	
+}
@@ -0,0 +1,127 @@
+/**
+ * ================================================================================================
+ * Copyright (c) 2003 JJang (Seon-joo, Jang)
+ * Licensed under the MIT license (http://www.opensource.org/licenses/MIT)
+ * 
+ * @Author      : Seon-joo, Jang (jeuse7@gmail.com)
+ * @File Name   : ShardMigrator.java
+ * @Description : 업로드 파일 분산 디렉토리 이동 클래스.
+ *                file.shard.depth 를 바꾼 후 DB 가 참조하는 첨부파일(savePath, saveName)을 한 건씩 받아
+ *                FileShard.migrate 로 현재 단계 위치로 옮긴다. 옮기지 않아도 FileShard.getFile 로 찾을 수 있으므로
+ *                서비스 중에 실행해도 되며, 중단된 경우 다시 실행하면 옮기지 않은 파일만 옮긴다.
+ *                global.properties file.shard.migrate 가 true 이면 애플리케이션 시작시 한 번 실행한다.
+ * @Version     : 3.0.0
+ * ================================================================================================
+ */
+package kr.co.akis.common.upload;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import kr.co.akis.util.Const;
+import kr.co.akis.util.ExceptionUtil;
+import kr.co.akis.util.FileShard;
+import kr.co.akis.util.FileUtil;
+import kr.co.akis.util.StringUtil;
+
+public class ShardMigrator {
+	
+	private static final Logger logger = LoggerFactory.getLogger(ShardMigrator.class);
+	
+	/** 애플리케이션 시작시 실행 여부 */
+	public static final boolean IS_STARTUP = Const.properties.getBoolean("file.shard.migrate", false);
+	
+	/** 실행 중 여부 (동시에 두 번 실행하지 않는다.) */
+	private static final AtomicBoolean isRunning = new AtomicBoolean(false);
+	
+	/**
+	 * <p>file.shard.migrate 가 true 이면 별도 쓰레드에서 분산 디렉토리 이동을 실행한다.</p>
+	 * 
+	 * @param source (참조 파일 목록 제공 객체)
+	 */
+	public static void start(final OrphanSweeper.ReferenceSource source) {
+		if (!IS_STARTUP) {
+			return;
+		}
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				migrate(source, false);
+			}
+		}, "file-shard-migrate");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MIN_PRIORITY);
+		thread.start();
+	}
+	
+	/**
+	 * <p>참조 파일을 현재 단계(file.shard.depth) 분산 위치로 옮긴다.</p>
+	 * 
+	 * <pre>
+	 * ShardMigrator.migrate(source, true)  = 옮길 대상 수 (옮기지 않음)
+	 * ShardMigrator.migrate(source, false) = 이동 결과
+	 * ShardMigrator.migrate(실행 중, *)    = null
+	 * </pre>
+	 * 
+	 * @param source   (참조 파일 목록 제공 객체)
+	 * @param isDryRun (옮기지 않고 대상만 셀지 여부)
+	 * @return Map     (refCnt(참조 파일 수), moveCnt(옮긴 파일 수), failCnt(실패 파일 수))
+	 */
+	public static Map<String, Object> migrate(OrphanSweeper.ReferenceSource source, final boolean isDryRun) {
+		if (!isRunning.compareAndSet(false, true)) {
+			logger.warn("분산 디렉토리 이동이 이미 실행 중입니다.");
+			return null;
+		}
+		try {
+			long startTime = System.currentTimeMillis();
+			final String uploadPath = FileUtil.cleanPath(Const.UPLOAD_PATH, "/");
+			final long[] counts = {0, 0, 0};
+			try {
+				source.fetch(new ResultHandler<Map<String, Object>>() {
+					@Override
+					public void handleResult(ResultContext<? extends Map<String, Object>> context) {
+						Map<String, Object> fileMap = context.getResultObject();
+						String savePath = FileUtil.cleanPath("/" + StringUtil.clean(fileMap.get("savePath")), "/");
+						String saveName = StringUtil.clean(fileMap.get("saveName"));
+						if (StringUtil.isBlank(saveName)) {
+							return;
+						}
+						counts[0]++;
+						// 저장경로가 전체 경로이면 그대로 사용한다.
+						String folderPath = savePath.startsWith(uploadPath + "/") ? savePath : uploadPath + savePath;
+						try {
+							if (FileShard.migrate(FileUtil.cleanPath(folderPath), saveName, isDryRun)) {
+								if (++counts[1] % 10000 == 0) {
+									logger.info("분산 디렉토리 이동 진행 [파일 수 : " + counts[1] + "]");
+								}
+							}
+						} catch (Exception e) {
+							counts[2]++;
+							logger.warn("분산 디렉토리 이동 실패 [파일경로 : " + folderPath + "/" + saveName + ", 사유 : " + e.toString() + "]");
+						}
+					}
+				});
+			} catch (Exception e) {
+				logger.error(ExceptionUtil.addMessage(e, "참조 파일 목록 조회 실패!! 분산 디렉토리 이동을 중단합니다."));
+				return null;
+			}
+			Map<String, Object> resultMap = new HashMap<String, Object>();
+			resultMap.put("refCnt", counts[0]);
+			resultMap.put("moveCnt", counts[1]);
+			resultMap.put("failCnt", counts[2]);
+			resultMap.put("isDryRun", isDryRun);
+			resultMap.put("elapsed", System.currentTimeMillis() - startTime);
+			logger.info("분산 디렉토리 이동" + (isDryRun ? "(dry run)" : "") + " [결과 : " + resultMap + "]");
+			return resultMap;
+		} finally {
+			isRunning.set(false);
+		}
+	}
+	
+}
@@ -0,0 +1,436 @@
+/**
+ * ================================================================================================
+ * Copyright (c) 2003 JJang (Seon-joo, Jang)
+ * Licensed under the MIT license (http://www.opensource.org/licenses/MIT)
+ * 
+ * @Author      : Seon-joo, Jang (jeuse7@gmail.com)
+ * @File Name   : UploadPipeline.java
+ * @Description : 업로드 후처리(체크섬, 콘텐츠타입 확인, 바이러스 검사 등) 백그라운드 작업 관리 클래스.
+ *                컨트롤러는 FileUpload 가 리턴한 파일정보를 submit 만 하고 바로 응답하며, 후처리 단계(Stage)는
+ *                크기가 제한된 작업 쓰레드에서 순서대로 실행한다. 작업은 업로드 경로 /pipeline 에 파일로 저장되므로
+ *                대기 작업이 많거나 서버가 재시작되어도 잃어버리지 않고 이어서 처리한다.
+ *                단계별 결과는 파일 옆의 "저장파일명.stage" 파일에 저장되며 getStatus 로 조회한다.
+ *                단계가 실패하면(검사 오류, 시간 초과 등) 작업은 대기 파일로 남아 retryDelay 부터 두 배씩 늘린 간격으로
+ *                다시 실행된다. maxRetry 번 재시도해도 실패하거나 감염 판정(SecurityException)이면 ERROR 로 끝낸다.
+ *                  - upload.pipeline.threads       : 동시 작업 수 (기본 2)
+ *                  - upload.pipeline.queue         : 메모리 대기 작업 수 (기본 100, 넘으면 파일로만 대기)
+ *                  - upload.pipeline.stages        : 기본 단계 (checksum, contentType, scan)
+ *                  - upload.pipeline.retryDelay    : 첫 재시도 간격 (초, 기본 60)
+ *                  - upload.pipeline.maxRetryDelay : 최대 재시도 간격 (초, 기본 3600)
+ *                  - upload.pipeline.maxRetry      : 최대 재시도 횟수 (기본 10)
+ * @Version     : 3.0.0
+ * ================================================================================================
+ */
+package kr.co.akis.common.upload;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import kr.co.akis.util.Const;
+import kr.co.akis.util.ExceptionUtil;
+import kr.co.akis.util.FileShard;
+import kr.co.akis.util.FileUtil;
+import kr.co.akis.util.NumberUtil;
+import kr.co.akis.util.StringUtil;
+
+public class UploadPipeline {
+	
+	private static final Logger logger = LoggerFactory.getLogger(UploadPipeline.class);
+	
+	/** 작업 대기 파일 서브경로 (업로드 경로 기준) */
+	public static final String QUEUE_PATH = "/pipeline";
+	
+	/** 단계별 결과 파일 확장자 (저장파일명 + 확장자) */
+	public static final String STATUS_EXT = FileShard.STATUS_EXT;
+	
+	public static final String STATUS_RUNNING = "RUNNING";
+	public static final String STATUS_RETRY = "RETRY";
+	public static final String STATUS_DONE = "DONE";
+	public static final String STATUS_ERROR = "ERROR";
+	
+	/** 첫 재시도 간격 (밀리초) */
+	private static final long RETRY_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(Const.properties.getLong("upload.pipeline.retryDelay", 60));
+	
+	/** 최대 재시도 간격 (밀리초) */
+	private static final long MAX_RETRY_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(Const.properties.getLong("upload.pipeline.maxRetryDelay", 3600));
+	
+	/** 최대 재시도 횟수 */
+	private static final int MAX_RETRY = Const.properties.getInt("upload.pipeline.maxRetry", 10);
+	
+	/** 작업에 저장하는 파일정보 키 */
+	private static final String[] FILE_MAP_KEYS = {"fileDiv", "savePath", "saveName", "orgnName", "fileExt", "fileSize", "contentType", "fileHash"};
+	
+	/** 후처리 단계 목록 (등록 순서대로 실행) */
+	private static final List<Stage> stageList = new CopyOnWriteArrayList<Stage>();
+	
+	/** 처리 중이거나 쓰레드 풀에 넘긴 작업 파일명 */
+	private static final Set<String> inFlightSet = ConcurrentHashMap.newKeySet();
+	
+	/** 작업 쓰레드 풀 */
+	private static final ThreadPoolExecutor executor;
+	
+	/** 작업 대기 파일을 주기적으로 쓰레드 풀에 넘기는 쓰레드 (재시작, 대기 초과 작업 처리) */
+	private static final ScheduledExecutorService feeder;
+	
+	static {
+		for (String stageName : Const.properties.getString("upload.pipeline.stages", "checksum,contentType,scan").split(",")) {
+			stageName = stageName.trim();
+			if ("checksum".equals(stageName)) {
+				stageList.add(new ChecksumStage());
+			} else if ("contentType".equals(stageName)) {
+				stageList.add(new ContentTypeStage());
+			} else if ("scan".equals(stageName)) {
+				stageList.add(new ScanStage());
+			} else if (!stageName.isEmpty()) {
+				logger.warn("알 수 없는 업로드 후처리 단계 [단계 : " + stageName + "]");
+			}
+		}
+		int threads = Const.properties.getInt("upload.pipeline.threads", 2);
+		int queue = Const.properties.getInt("upload.pipeline.queue", 100);
+		executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(queue), new PipelineThreadFactory("upload-pipeline-"));
+		executor.allowCoreThreadTimeOut(true);
+		feeder = Executors.newSingleThreadScheduledExecutor(new PipelineThreadFactory("upload-pipeline-feeder-"));
+		feeder.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				feed();
+			}
+		}, 10, 30, TimeUnit.SECONDS);
+	}
+	
+	/**
+	 * <p>업로드 후처리 단계.</p>
+	 */
+	public interface Stage {
+		
+		/**
+		 * <p>단계 이름을 리턴한다. (결과 파일의 키로 사용하므로 바꾸지 않는다.)</p>
+		 * 
+		 * @return String (단계 이름)
+		 */
+		String getName();
+		
+		/**
+		 * <p>파일을 처리하고 결과를 리턴한다. 예외가 발생하면 이후 단계는 실행하지 않는다.</p>
+		 * 
+		 * @param file    (업로드된 파일)
+		 * @param fileMap (파일정보 - 앞 단계의 결과는 "stage.단계이름" 키로 들어있다.)
+		 * @return String (처리 결과 - 결과 파일에 저장)
+		 * @throws Exception
+		 */
+		String process(File file, Map<String, String> fileMap) throws Exception;
+		
+	}
+	
+	/**
+	 * <p>후처리 단계를 추가한다. 기본 단계 뒤에 실행된다.</p>
+	 * 
+	 * @param stage (후처리 단계)
+	 */
+	public static void register(Stage stage) {
+		stageList.add(stage);
+	}
+	
+	/**
+	 * <p>업로드한 파일의 후처리 작업을 등록한다. 작업은 파일로 저장된 후 백그라운드에서 실행된다.</p>
+	 * 
+	 * @param fileMap  (FileUpload 가 리턴한 파일정보)
+	 * @return boolean (등록 여부)
+	 */
+	public static boolean submit(Map<String, Object> fileMap) {
+		if (fileMap == null || StringUtil.isBlank(fileMap.get("saveName"))) {
+			return false;
+		}
+		Properties job = new Properties();
+		for (String key : FILE_MAP_KEYS) {
+			if (fileMap.get(key) != null) {
+				job.setProperty(key, StringUtil.clean(fileMap.get(key)));
+			}
+		}
+		try {
+			String jobName = getJobName(System.currentTimeMillis());
+			File queueFolder = getQueueFolder();
+			queueFolder.mkdirs();
+			store(job, new File(queueFolder, jobName));
+			// 새 작업만 넘기고, 대기 작업이 가득 차면 feeder 가 대기 파일을 다시 찾아서 넘긴다.
+			dispatch(jobName);
+			return true;
+		} catch (Exception e) {
+			logger.error(ExceptionUtil.addMessage(e, "업로드 후처리 작업 등록 실패!! [파일명 : " + fileMap.get("saveName") + "]"));
+			return false;
+		}
+	}
+	
+	/**
+	 * <p>파일의 후처리 결과를 리턴한다.</p>
+	 * 
+	 * @param fileMap                         (파일정보)
+	 * @return {@literal Map<String, String>} (status, stage.단계이름 = 결과, 결과가 없으면 빈 Map)
+	 */
+	public static Map<String, String> getStatus(Map<String, Object> fileMap) {
+		Map<String, String> statusMap = new HashMap<String, String>();
+		String savePath = StringUtil.clean(fileMap.get("savePath"));
+		String saveName = StringUtil.clean(fileMap.get("saveName"));
+		if (StringUtil.isBlank(saveName) || StringUtil.contains(savePath + saveName, "..")) {
+			return statusMap;
+		}
+		File statusFile = getStatusFile(getFile(savePath, saveName));
+		if (statusFile.exists()) {
+			Properties status = load(statusFile);
+			for (String key : status.stringPropertyNames()) {
+				statusMap.put(key, status.getProperty(key));
+			}
+		}
+		return statusMap;
+	}
+	
+	/**
+	 * <p>작업 쓰레드를 종료한다. 애플리케이션 종료시 BackgroundTaskShutdown 에서 호출한다.
+	 * (처리 중인 작업은 대기 파일로 남아 재시작 후 이어서 처리된다.)</p>
+	 */
+	public static void shutdown() {
+		feeder.shutdownNow();
+		executor.shutdownNow();
+	}
+	
+	/**
+	 * <p>작업 대기 파일을 등록 순서대로 쓰레드 풀에 넘긴다. 재시도 시간이 되지 않은 작업은 건너뛰고
+	 * 대기 작업이 가득 차면 다음 기회에 넘긴다. (feeder 쓰레드에서만 호출한다.)</p>
+	 */
+	private static void feed() {
+		String[] jobNames = getQueueFolder().list();
+		if (jobNames == null) {
+			return;
+		}
+		Arrays.sort(jobNames);
+		long now = System.currentTimeMillis();
+		for (String jobName : jobNames) {
+			if (!jobName.endsWith(".job") || getJobTime(jobName) > now) {
+				continue;
+			}
+			if (!dispatch(jobName) && executor.getQueue().remainingCapacity() == 0) {
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * <p>작업 하나를 쓰레드 풀에 넘긴다. 이미 넘긴 작업이거나 대기 작업이 가득 차면 false 를 리턴한다.</p>
+	 */
+	private static boolean dispatch(final String jobName) {
+		if (!inFlightSet.add(jobName)) {
+			return false;
+		}
+		try {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						execute(new File(getQueueFolder(), jobName));
+					} finally {
+						inFlightSet.remove(jobName);
+					}
+				}
+			});
+			return true;
+		} catch (RejectedExecutionException e) {
+			inFlightSet.remove(jobName);
+			return false;
+		}
+	}
+	
+	/**
+	 * <p>작업 쓰레드에서 후처리 단계를 순서대로 실행한다. 이미 완료된 단계는 건너뛴다.</p>
+	 * <p>실패하면 작업 파일을 재시도 시간이 붙은 이름으로 바꿔서 대기 파일로 남긴다.</p>
+	 */
+	private static void execute(File jobFile) {
+		if (!jobFile.exists()) {
+			return;
+		}
+		Properties job = load(jobFile);
+		String saveName = job.getProperty("saveName");
+		File file = getFile(job.getProperty("savePath"), saveName);
+		if (!file.isFile()) {
+			logger.warn("업로드 후처리 파일이 존재하지 않습니다. [파일경로 : " + file + "]");
+			jobFile.delete();
+			return;
+		}
+		File statusFile = getStatusFile(file);
+		Properties status = statusFile.exists() ? load(statusFile) : new Properties();
+		Map<String, String> fileMap = new HashMap<String, String>();
+		for (String key : job.stringPropertyNames()) {
+			fileMap.put(key, job.getProperty(key));
+		}
+		try {
+			status.setProperty("status", STATUS_RUNNING);
+			store(status, statusFile);
+			for (Stage stage : stageList) {
+				String stageKey = "stage." + stage.getName();
+				if (status.getProperty(stageKey) == null) {
+					long startTime = System.currentTimeMillis();
+					String result = stage.process(file, fileMap);
+					status.setProperty(stageKey, StringUtil.clean(result, STATUS_DONE));
+					logger.debug("업로드 후처리 [파일명 : " + saveName + ", 단계 : " + stage.getName() + ", 결과 : " + result + ", 소요시간 : " + (System.currentTimeMillis() - startTime) + "ms]");
+					store(status, statusFile);
+				}
+				fileMap.put(stageKey, status.getProperty(stageKey));
+			}
+			status.setProperty("status", STATUS_DONE);
+			status.remove("error");
+			status.remove("retryCnt");
+		} catch (SecurityException e) {
+			// 감염 등 단계의 판정 결과는 다시 실행해도 같으므로 작업을 끝낸다.
+			logger.warn("업로드 후처리 중단 [파일경로 : " + file + ", 사유 : " + e.getMessage() + "]");
+			status.setProperty("status", STATUS_ERROR);
+			status.setProperty("error", StringUtil.clean(e.getMessage(), e.toString()));
+		} catch (Exception e) {
+			int retryCnt = NumberUtil.toInt(job.getProperty("retryCnt"), 0) + 1;
+			if (retryCnt > MAX_RETRY) {
+				// 계속 실패하는 작업(검사 프로그램 고장 등)은 무한히 재시도하지 않고 끝낸다.
+				logger.error(ExceptionUtil.addMessage(e, "업로드 후처리 실패!! 최대 재시도 횟수를 넘어서 중단합니다. [파일경로 : " + file + ", 재시도 : " + MAX_RETRY + "]"));
+				status.setProperty("status", STATUS_ERROR);
+				status.setProperty("error", StringUtil.clean(e.getMessage(), e.toString()));
+				storeStatus(status, statusFile);
+				jobFile.delete();
+				return;
+			}
+			long retryDelay = getRetryDelay(retryCnt);
+			logger.error(ExceptionUtil.addMessage(e, "업로드 후처리 실패!! " + (retryDelay / 1000) + "초 후 다시 실행합니다. [파일경로 : " + file + ", 재시도 : " + retryCnt + "]"));
+			status.setProperty("status", STATUS_RETRY);
+			status.setProperty("error", StringUtil.clean(e.getMessage(), e.toString()));
+			status.setProperty("retryCnt", String.valueOf(retryCnt));
+			storeStatus(status, statusFile);
+			job.setProperty("retryCnt", String.valueOf(retryCnt));
+			try {
+				store(job, new File(jobFile.getParentFile(), getJobName(System.currentTimeMillis() + retryDelay)));
+				jobFile.delete();
+			} catch (IOException ioe) {
+				// 이름을 바꾸지 못하면 기존 작업 파일이 남아 다음 feed 에서 다시 실행된다.
+				logger.error(ExceptionUtil.addMessage(ioe, "업로드 후처리 재시도 등록 실패!! [파일경로 : " + jobFile + "]"));
+			}
+			return;
+		}
+		storeStatus(status, statusFile);
+		jobFile.delete();
+	}
+	
+	/**
+	 * <p>재시도 간격을 리턴한다. 첫 재시도 간격부터 두 배씩 늘리고 최대 재시도 간격을 넘지 않는다.</p>
+	 */
+	private static long getRetryDelay(int retryCnt) {
+		long retryDelay = RETRY_DELAY_MILLIS;
+		for (int i = 1; i < retryCnt && retryDelay < MAX_RETRY_DELAY_MILLIS; i++) {
+			retryDelay *= 2;
+		}
+		return Math.min(retryDelay, MAX_RETRY_DELAY_MILLIS);
+	}
+	
+	/**
+	 * <p>작업 파일명을 리턴한다. 실행 시간(밀리초)으로 시작하므로 정렬하면 실행할 순서가 된다.</p>
+	 */
+	private static String getJobName(long jobTime) {
+		return jobTime + "-" + UUID.randomUUID().toString().substring(0, 8) + ".job";
+	}
+	
+	/**
+	 * <p>작업 파일명의 실행 시간을 리턴한다.</p>
+	 */
+	private static long getJobTime(String jobName) {
+		int index = jobName.indexOf('-');
+		return index > 0 ? NumberUtil.toLong(jobName.substring(0, index), 0) : 0;
+	}
+	
+	private static void storeStatus(Properties status, File statusFile) {
+		try {
+			store(status, statusFile);
+		} catch (IOException e) {
+			logger.error(ExceptionUtil.addMessage(e, "업로드 후처리 결과 저장 실패!! [파일경로 : " + statusFile + "]"));
+		}
+	}
+	
+	private static File getQueueFolder() {
+		return new File(FileUtil.cleanPath(Const.UPLOAD_PATH + QUEUE_PATH));
+	}
+	
+	private static File getFile(String savePath, String saveName) {
+		return FileShard.getFile(FileUtil.cleanPath(Const.UPLOAD_PATH + savePath), saveName);
+	}
+	
+	private static File getStatusFile(File file) {
+		return new File(file.getParentFile(), file.getName() + STATUS_EXT);
+	}
+	
+	private static Properties load(File file) {
+		Properties props = new Properties();
+		InputStream is = null;
+		try {
+			is = new FileInputStream(file);
+			props.load(is);
+		} catch (IOException e) {
+			logger.error(ExceptionUtil.addMessage(e, "업로드 후처리 파일 읽기 실패!! [파일경로 : " + file + "]"));
+		} finally {
+			if (is != null) try { is.close(); } catch (Exception e) {};
+		}
+		return props;
+	}
+	
+	/**
+	 * <p>임시파일에 쓴 후 이름을 바꿔서 읽는 쪽에서 쓰다만 파일을 보지 않게 한다.</p>
+	 */
+	private static void store(Properties props, File file) throws IOException {
+		File tempFile = new File(file.getParentFile(), file.getName() + ".tmp");
+		OutputStream os = new FileOutputStream(tempFile);
+		try {
+			props.store(os, null);
+		} finally {
+			os.close();
+		}
+		Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+	
+	private static class PipelineThreadFactory implements ThreadFactory {
+		
+		private final AtomicInteger threadNo = new AtomicInteger();
+		
+		private final String prefix;
+		
+		private PipelineThreadFactory(String prefix) {
+			this.prefix = prefix;
+		}
+		
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, prefix + threadNo.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+		
+	}
+	
+}
@@ -0,0 +1,38 @@
+/**
+ * ================================================================================================
+ * Copyright (c) 2003 JJang (Seon-joo, Jang)
+ * Licensed under the MIT license (http://www.opensource.org/licenses/MIT)
+ * 
+ * @Author      : Seon-joo, Jang (jeuse7@gmail.com)
+ * @File Name   : BackgroundTaskShutdown.java
+ * @Description : 애플리케이션 종료시 백그라운드 작업 쓰레드(업로드 후처리, 엑셀 작성, 분할 업로드 정리, 업로드 파일 정리)를 종료한다.
+ *                context-common.xml 에 Bean 으로 등록하면 Spring 컨텍스트가 닫힐 때 destroy 가 호출된다.
+ *                처리 중이던 업로드 후처리 작업은 대기 파일로 남아 재시작 후 이어서 처리된다.
+ * @Version     : 3.0.0
+ * ================================================================================================
+ */
+package kr.co.akis.springframework;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+
+import kr.co.akis.common.excel.ExcelExportManager;
+import kr.co.akis.common.upload.OrphanSweeper;
+import kr.co.akis.common.upload.UploadPipeline;
+import kr.co.akis.util.ChunkUpload;
+
+public class BackgroundTaskShutdown implements DisposableBean {
+	
+	private static final Logger logger = LoggerFactory.getLogger(BackgroundTaskShutdown.class);
+	
+	@Override
+	public void destroy() throws Exception {
+		UploadPipeline.shutdown();
+		ExcelExportManager.shutdown();
+		ChunkUpload.shutdown();
+		OrphanSweeper.shutdown();
+		logger.info("백그라운드 작업 쓰레드 종료");
+	}
+	
+}
@@ -0,0 +1,63 @@
+/**
+ * ================================================================================================
+ * Copyright (c) 2003 JJang (Seon-joo, Jang)
+ * Licensed under the MIT license (http://www.opensource.org/licenses/MIT)
+ * 
+ * @Author      : Seon-joo, Jang (jeuse7@gmail.com)
+ * @File Name   : StreamingMultipartResolver.java
+ * @Description : 지정한 URL은 multipart 요청을 미리 해석하지 않는 MultipartResolver 클래스.
+ *                CommonsMultipartResolver 는 컨트롤러 실행 전에 maxInMemorySize 보다 큰 파일을 임시경로에 쓰므로
+ *                요청 본문을 바로 저장 위치로 쓰는 FileStreamUpload 를 사용하는 URL은 streamingUrls 에 등록한다.
+ * @Version     : 3.0.0
+ * ================================================================================================
+ */
+package kr.co.akis.springframework;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.util.UrlPathHelper;
+import org.springframework.web.multipart.commons.CommonsMultipartResolver;
+
+public class StreamingMultipartResolver extends CommonsMultipartResolver {
+	
+	private final AntPathMatcher antPathMatcher = new AntPathMatcher();
+	
+	private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+	
+	private List<String> streamingUrls = new ArrayList<String>();
+	
+	/**
+	 * <p>multipart 요청을 해석하지 않을 URL 패턴 (Context Path 제외 Ant 패턴)을 설정한다.</p>
+	 * 
+	 * @param streamingUrls (URL 패턴 리스트)
+	 */
+	public void setStreamingUrls(List<String> streamingUrls) {
+		this.streamingUrls = streamingUrls;
+	}
+	
+	/**
+	 * <p>streamingUrls 에 해당하는 요청은 multipart 요청이 아닌 것으로 처리한다.</p>
+	 * 
+	 * @param request  (HttpServletRequest)
+	 * @return boolean (multipart 해석 여부)
+	 */
+	@Override
+	public boolean isMultipart(HttpServletRequest request) {
+		if (!super.isMultipart(request)) {
+			return false;
+		}
+		// 핸들러 매핑과 같은 방식으로 디코딩하고 ;jsessionid= 등을 제거한 경로로 비교한다.
+		String requestUri = urlPathHelper.getPathWithinApplication(request);
+		for (String streamingUrl : streamingUrls) {
+			if (antPathMatcher.match(streamingUrl, requestUri)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+}
@@ -0,0 +1,571 @@
+/**
+ * ================================================================================================
+ * Copyright (c) 2003 JJang (Seon-joo, Jang)
+ * Licensed under the MIT license (http://www.opensource.org/licenses/MIT)
+ * 
+ * @Author      : Seon-joo, Jang (jeuse7@gmail.com)
+ * @File Name   : ChunkUpload.java
+ * @Description : 분할(Chunk) 이어올리기 업로드 클래스.
+ *                init   : 업로드 세션을 만든다. 작업 파일은 미리 할당하지 않고 받은 조각만큼만 디스크를 사용한다.
+ *                write  : 고정 크기 조각을 요청 본문에서 바로 해당 위치(조각번호 x 조각크기)에 쓴다.
+ *                status : 받은 조각, 못 받은 조각 목록을 리턴한다. (끊긴 후 이어올리기)
+ *                complete : 모든 조각을 받으면 업로드 경로로 옮기고 FileUpload.upload 와 같은 파일정보를 리턴한다.
+ *                조각마다 따로 요청하므로 실패한 조각만 다시 보내면 되고 여러 연결로 동시에 보낼 수 있다.
+ *                작업 파일은 업로드 경로 /chunk/업로드ID.* 에 저장되므로 완료시 복사없이 이름만 바꾼다.
+ *                조각 쓰기는 업로드 ID별 읽기 잠금, 완료/취소는 쓰기 잠금으로 처리하여 옮기는 중인 파일에 조각을 쓰지 않는다.
+ *                요청자별 세션 수, 파일 크기 합계를 제한하고 남은 디스크 공간보다 큰 세션은 만들지 않는다.
+ *                끝나지 않은 세션은 file.chunk.expireHours 시간이 지나면 purgeInterval 분 간격으로 삭제한다.
+ *                  - file.chunk.maxSize          : 최대 파일 크기 (bytes, 기본 10GB)
+ *                  - file.chunk.maxOwnerSessions : 요청자별 최대 세션 수 (기본 5)
+ *                  - file.chunk.maxOwnerSize     : 요청자별 세션 파일 크기 합계 (bytes, 기본 maxSize)
+ *                  - file.chunk.expireHours      : 세션 유지 시간 (기본 24)
+ *                  - file.chunk.purgeInterval    : 만료 세션 삭제 간격 (분, 기본 60, 0 이면 자동 삭제 안함)
+ * @Version     : 3.0.0
+ * ================================================================================================
+ */
+package kr.co.akis.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class ChunkUpload {
+	
+	private static final Logger logger = LoggerFactory.getLogger(ChunkUpload.class);
+	
+	/** 작업 파일 서브경로 (업로드 경로 기준) */
+	public static final String CHUNK_PATH = "/chunk";
+	
+	/** 최소 조각 크기 (256KB) */
+	public static final int MIN_CHUNK_SIZE = 256 * 1024;
+	
+	/** 최대 조각 크기 (64MB) */
+	public static final int MAX_CHUNK_SIZE = 64 * 1024 * 1024;
+	
+	/** 최대 파일 크기 (기본 10GB, global.properties file.chunk.maxSize) */
+	private static final long MAX_FILE_SIZE = Const.properties.getLong("file.chunk.maxSize", 10L * 1024 * 1024 * 1024);
+	
+	/** 조각 쓰기 버퍼 크기 */
+	private static final int BUFFER_SIZE = 64 * 1024;
+	
+	/** 요청자별 최대 세션 수 */
+	private static final int MAX_OWNER_SESSIONS = Const.properties.getInt("file.chunk.maxOwnerSessions", 5);
+	
+	/** 요청자별 세션 파일 크기 합계 */
+	private static final long MAX_OWNER_SIZE = Const.properties.getLong("file.chunk.maxOwnerSize", MAX_FILE_SIZE);
+	
+	/** 세션 유지 시간 (밀리초) */
+	private static final long EXPIRE_MILLIS = TimeUnit.HOURS.toMillis(Const.properties.getLong("file.chunk.expireHours", 24));
+	
+	/** 조각 수신 표시 값 */
+	private static final byte CHUNK_RECEIVED = 1;
+	
+	/** 세션 생성 잠금 (세션 수, 크기 확인과 생성을 한번에 처리한다.) */
+	private static final Object INIT_LOCK = new Object();
+	
+	/** 업로드 ID별 잠금 (조각 쓰기는 동시에, 완료/취소는 단독으로 처리한다.) */
+	private static final ConcurrentMap<String, ReadWriteLock> sessionLocks = new ConcurrentHashMap<String, ReadWriteLock>();
+	
+	/** 만료 세션 삭제 쓰레드 */
+	private static final ScheduledExecutorService purger;
+	
+	static {
+		long purgeInterval = Const.properties.getLong("file.chunk.purgeInterval", 60);
+		if (purgeInterval > 0) {
+			purger = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "chunk-upload-purger");
+					thread.setDaemon(true);
+					thread.setPriority(Thread.MIN_PRIORITY);
+					return thread;
+				}
+			});
+			purger.scheduleWithFixedDelay(new Runnable() {
+				@Override
+				public void run() {
+					// 예외가 나가면 이후 실행이 취소되므로 여기서 처리한다.
+					try {
+						int purgeCnt = purge(EXPIRE_MILLIS);
+						if (purgeCnt > 0) {
+							logger.info("만료된 분할 업로드 세션 삭제 [세션 수 : " + purgeCnt + "]");
+						}
+					} catch (Exception e) {
+						logger.error(ExceptionUtil.addMessage(e, "만료된 분할 업로드 세션 삭제 실패!!"));
+					}
+				}
+			}, purgeInterval, purgeInterval, TimeUnit.MINUTES);
+		} else {
+			purger = null;
+		}
+	}
+	
+	/**
+	 * <p>업로드 세션을 만들고 업로드 ID를 리턴한다.</p>
+	 * <p>요청자의 세션 수, 세션 파일 크기 합계가 제한을 넘거나 남은 디스크 공간이 부족하면 null 을 리턴한다.</p>
+	 * 
+	 * @param owner       (업로드 요청자 - 로그인 ID 또는 세션 ID)
+	 * @param orgnName    (원본 파일명)
+	 * @param fileSize    (전체 파일 크기)
+	 * @param chunkSize   (조각 크기 - 마지막 조각 외에는 모두 같은 크기)
+	 * @param contentType (파일 콘텐츠타입)
+	 * @return String     (업로드 ID, 잘못된 요청이면 null)
+	 */
+	public static String init(String owner, String orgnName, long fileSize, int chunkSize, String contentType) {
+		if (StringUtil.isBlank(orgnName) || orgnName.matches("(?s).*[/\\\\\\r\\n].*")) {
+			logger.warn("분할 업로드 파일명 오류 [파일명 : " + orgnName + "]");
+			return null;
+		}
+		if (fileSize <= 0 || fileSize > MAX_FILE_SIZE || chunkSize < MIN_CHUNK_SIZE || chunkSize > MAX_CHUNK_SIZE) {
+			logger.warn("분할 업로드 크기 오류 [파일크기 : " + fileSize + ", 조각크기 : " + chunkSize + "]");
+			return null;
+		}
+		String uploadId = UUID.randomUUID().toString().replaceAll("-", "");
+		synchronized (INIT_LOCK) {
+			return reserve(owner, fileSize) ? create(owner, uploadId, orgnName, fileSize, chunkSize, contentType) : null;
+		}
+	}
+	
+	/**
+	 * <p>요청자의 세션 수, 세션 파일 크기 합계와 남은 디스크 공간을 확인한다.</p>
+	 * <p>디스크 공간은 진행 중인 모든 세션이 아직 받지 않은 크기를 뺀 나머지로 계산한다.</p>
+	 */
+	private static boolean reserve(String owner, long fileSize) {
+		File chunkFolder = getChunkFolder();
+		chunkFolder.mkdirs();
+		File[] metaFiles = chunkFolder.listFiles();
+		int ownerSessions = 0;
+		long ownerSize = 0;
+		long remainSize = 0;
+		for (File metaFile : metaFiles == null ? new File[0] : metaFiles) {
+			String fileName = metaFile.getName();
+			if (!fileName.endsWith(".meta")) {
+				continue;
+			}
+			Properties meta = readMeta(metaFile);
+			if (meta == null) {
+				continue;
+			}
+			long sessionSize = NumberUtil.toLong(meta.getProperty("fileSize"), 0);
+			File partFile = new File(chunkFolder, fileName.replaceAll("\\.meta$", ".part"));
+			remainSize += Math.max(0, sessionSize - partFile.length());
+			if (StringUtil.clean(owner).equals(meta.getProperty("owner"))) {
+				ownerSessions++;
+				ownerSize += sessionSize;
+			}
+		}
+		if (ownerSessions >= MAX_OWNER_SESSIONS || ownerSize + fileSize > MAX_OWNER_SIZE) {
+			logger.warn("분할 업로드 요청자 제한 초과 [세션 수 : " + ownerSessions + ", 세션 파일 크기 합계 : " + ownerSize + ", 파일크기 : " + fileSize + "]");
+			return false;
+		}
+		if (chunkFolder.getUsableSpace() < remainSize + fileSize) {
+			logger.warn("분할 업로드 디스크 공간 부족 [남은 공간 : " + chunkFolder.getUsableSpace() + ", 예약된 크기 : " + remainSize + ", 파일크기 : " + fileSize + "]");
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * <p>업로드 세션 작업 파일을 생성한다.</p>
+	 */
+	private static String create(String owner, String uploadId, String orgnName, long fileSize, int chunkSize, String contentType) {
+		try {
+			File chunkFolder = getChunkFolder();
+			// 작업 파일 (미리 할당하지 않고 조각을 받을 때 늘어난다.)
+			new File(chunkFolder, uploadId + ".part").createNewFile();
+			// 조각 수신 여부 (조각당 1 byte)
+			OutputStream os = new FileOutputStream(new File(chunkFolder, uploadId + ".map"));
+			try {
+				os.write(new byte[getChunkCnt(fileSize, chunkSize)]);
+			} finally {
+				os.close();
+			}
+			// 세션 정보
+			Properties meta = new Properties();
+			meta.setProperty("owner", StringUtil.clean(owner));
+			meta.setProperty("orgnName", orgnName);
+			meta.setProperty("fileSize", String.valueOf(fileSize));
+			meta.setProperty("chunkSize", String.valueOf(chunkSize));
+			meta.setProperty("contentType", StringUtil.clean(contentType));
+			os = new FileOutputStream(new File(chunkFolder, uploadId + ".meta"));
+			try {
+				meta.store(os, null);
+			} finally {
+				os.close();
+			}
+			return uploadId;
+		} catch (Exception e) {
+			logger.error(ExceptionUtil.addMessage(e, "분할 업로드 세션 생성 실패!! [파일명 : " + orgnName + "]"));
+			File chunkFolder = getChunkFolder();
+			new File(chunkFolder, uploadId + ".part").delete();
+			new File(chunkFolder, uploadId + ".map").delete();
+			new File(chunkFolder, uploadId + ".meta").delete();
+			return null;
+		}
+	}
+	
+	/**
+	 * <p>조각 하나를 스트림에서 읽어 해당 위치에 쓴다.</p>
+	 * <p>조각 크기와 정확히 같은 양을 받았을 때만 수신 완료로 표시하며 같은 조각을 다시 보내면 덮어쓴다.</p>
+	 * <p>완료/취소된 세션에는 쓰지 않는다. (완료 후 다시 보낸 조각은 ERROR_SESSION)</p>
+	 * 
+	 * @param owner    (업로드 요청자)
+	 * @param uploadId (업로드 ID)
+	 * @param chunkNo  (조각 번호 - 0부터 시작)
+	 * @param is       (조각 데이터 스트림 - 요청 본문)
+	 * @return String  (결과 - SUCCESS, ERROR_SESSION, ERROR_CHUNK_NO, ERROR_CHUNK_SIZE, ERROR_SYSTEM)
+	 */
+	public static String write(String owner, String uploadId, int chunkNo, InputStream is) {
+		if (!isSession(uploadId)) {
+			return "ERROR_SESSION";
+		}
+		ReadWriteLock lock = getLock(uploadId);
+		lock.readLock().lock();
+		try {
+			// 잠금을 얻은 후 세션을 확인해야 완료/취소된 세션에 작업 파일을 다시 만들지 않는다.
+			Properties meta = getMeta(owner, uploadId);
+			if (meta == null) {
+				return "ERROR_SESSION";
+			}
+			return writeChunk(uploadId, chunkNo, meta, is);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * <p>조각을 작업 파일에 쓰고 수신 완료로 표시한다. 업로드 ID 읽기 잠금 안에서 호출한다.</p>
+	 */
+	private static String writeChunk(String uploadId, int chunkNo, Properties meta, InputStream is) {
+		long fileSize = Long.parseLong(meta.getProperty("fileSize"));
+		int chunkSize = Integer.parseInt(meta.getProperty("chunkSize"));
+		if (chunkNo < 0 || chunkNo >= getChunkCnt(fileSize, chunkSize)) {
+			return "ERROR_CHUNK_NO";
+		}
+		long start = (long) chunkNo * chunkSize;
+		long length = Math.min(chunkSize, fileSize - start);
+		File chunkFolder = getChunkFolder();
+		RandomAccessFile raf = null;
+		try {
+			raf = new RandomAccessFile(new File(chunkFolder, uploadId + ".part"), "rw");
+			FileChannel channel = raf.getChannel();
+			byte[] b = new byte[BUFFER_SIZE];
+			long position = start;
+			long end = start + length;
+			int len = 0;
+			while ((len = is.read(b, 0, (int) Math.min(b.length, end - position + 1))) != -1) {
+				if (position + len > end) {
+					return "ERROR_CHUNK_SIZE";
+				}
+				ByteBuffer buffer = ByteBuffer.wrap(b, 0, len);
+				while (buffer.hasRemaining()) {
+					position += channel.write(buffer, position);
+				}
+			}
+			if (position != end) {
+				return "ERROR_CHUNK_SIZE";
+			}
+			channel.force(false);
+		} catch (Exception e) {
+			logger.error(ExceptionUtil.addMessage(e, "분할 업로드 조각 쓰기 실패!! [업로드 ID : " + uploadId + ", 조각 번호 : " + chunkNo + "]"));
+			return "ERROR_SYSTEM";
+		} finally {
+			if (raf != null) try { raf.close(); } catch (Exception e) {};
+		}
+		// 수신 완료 표시 (조각마다 다른 위치이므로 동시에 써도 된다.)
+		RandomAccessFile mapRaf = null;
+		try {
+			mapRaf = new RandomAccessFile(new File(chunkFolder, uploadId + ".map"), "rw");
+			mapRaf.seek(chunkNo);
+			mapRaf.write(CHUNK_RECEIVED);
+		} catch (Exception e) {
+			logger.error(ExceptionUtil.addMessage(e, "분할 업로드 조각 표시 실패!! [업로드 ID : " + uploadId + ", 조각 번호 : " + chunkNo + "]"));
+			return "ERROR_SYSTEM";
+		} finally {
+			if (mapRaf != null) try { mapRaf.close(); } catch (Exception e) {};
+		}
+		return "SUCCESS";
+	}
+	
+	/**
+	 * <p>업로드 진행 상태를 리턴한다.</p>
+	 * 
+	 * @param owner                           (업로드 요청자)
+	 * @param uploadId                        (업로드 ID)
+	 * @return {@literal Map<String, Object>} (진행 상태 - uploadId, orgnName, fileSize, chunkSize, chunkCnt, receivedCnt, missingList, isComplete. 세션이 없으면 null)
+	 */
+	public static Map<String, Object> status(String owner, String uploadId) {
+		Properties meta = getMeta(owner, uploadId);
+		if (meta == null) {
+			return null;
+		}
+		byte[] chunkMap = getChunkMap(uploadId);
+		if (chunkMap == null) {
+			return null;
+		}
+		List<Integer> missingList = new ArrayList<Integer>();
+		for (int i = 0; i < chunkMap.length; i++) {
+			if (chunkMap[i] != CHUNK_RECEIVED) {
+				missingList.add(i);
+			}
+		}
+		Map<String, Object> statusMap = new HashMap<String, Object>();
+		statusMap.put("uploadId", uploadId);
+		statusMap.put("orgnName", meta.getProperty("orgnName"));
+		statusMap.put("fileSize", Long.parseLong(meta.getProperty("fileSize")));
+		statusMap.put("chunkSize", Integer.parseInt(meta.getProperty("chunkSize")));
+		statusMap.put("chunkCnt", chunkMap.length);
+		statusMap.put("receivedCnt", chunkMap.length - missingList.size());
+		statusMap.put("missingList", missingList);
+		statusMap.put("isComplete", missingList.isEmpty());
+		return statusMap;
+	}
+	
+	/**
+	 * <p>모든 조각을 받았으면 파일을 업로드 경로로 옮기고 FileUpload.upload 와 같은 키의 파일정보를 리턴한다.</p>
+	 * <p>같은 세션을 동시에 완료하면 하나만 파일정보를 리턴하고 나머지는 null 을 리턴한다.</p>
+	 * 
+	 * @param owner                           (업로드 요청자)
+	 * @param uploadId                        (업로드 ID)
+	 * @param fileDiv                         (파일 구분)
+	 * @param savePath                        (저장할 파일 서브경로, null 이면 /년도/월)
+	 * @param fileSummary                     (첨부파일 요약 내용)
+	 * @return {@literal Map<String, Object>} (저장한 파일정보, 미완료 또는 오류시 null)
+	 */
+	public static Map<String, Object> complete(String owner, String uploadId, String fileDiv, String savePath, String fileSummary) {
+		if (!isSession(uploadId)) {
+			return null;
+		}
+		ReadWriteLock lock = getLock(uploadId);
+		lock.writeLock().lock();
+		try {
+			return completeSession(owner, uploadId, fileDiv, savePath, fileSummary);
+		} finally {
+			lock.writeLock().unlock();
+			if (!isSession(uploadId)) {
+				sessionLocks.remove(uploadId, lock);
+			}
+		}
+	}
+	
+	/**
+	 * <p>작업 파일을 업로드 경로로 옮기고 세션을 삭제한다. 업로드 ID 쓰기 잠금 안에서 호출한다.</p>
+	 */
+	private static Map<String, Object> completeSession(String owner, String uploadId, String fileDiv, String savePath, String fileSummary) {
+		Map<String, Object> statusMap = status(owner, uploadId);
+		if (statusMap == null || !Boolean.TRUE.equals(statusMap.get("isComplete"))) {
+			return null;
+		}
+		Properties meta = getMeta(owner, uploadId);
+		String orgnName = meta.getProperty("orgnName");
+		try {
+			savePath = FileUpload.getSavePath(savePath, true);
+			String saveName = FileUpload.getSaveName(null, orgnName, true);
+			File saveFile = FileShard.getFile(FileUtil.cleanPath(Const.UPLOAD_PATH + savePath), saveName);
+			saveFile.getParentFile().mkdirs();
+			Files.move(new File(getChunkFolder(), uploadId + ".part").toPath(), saveFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			cancel(owner, uploadId);
+			// 첨부파일 정보 생성
+			Map<String, Object> fileMap = new HashMap<String, Object>();
+			fileMap.put("fileDiv", StringUtil.clean(fileDiv));
+			fileMap.put("savePath", savePath);
+			fileMap.put("saveName", saveName);
+			fileMap.put("orgnName", orgnName);
+			fileMap.put("fileExt", FileUtil.getFileExt(orgnName));
+			fileMap.put("fileSize", statusMap.get("fileSize"));
+			fileMap.put("contentType", meta.getProperty("contentType"));
+			fileMap.put("fileSummary", StringUtil.clean(fileSummary));
+			return fileMap;
+		} catch (Exception e) {
+			logger.error(ExceptionUtil.addMessage(e, "분할 업로드 완료 처리 실패!! [업로드 ID : " + uploadId + "]"));
+			return null;
+		}
+	}
+	
+	/**
+	 * <p>업로드 세션과 작업 파일을 삭제한다.</p>
+	 * 
+	 * @param owner    (업로드 요청자)
+	 * @param uploadId (업로드 ID)
+	 */
+	public static void cancel(String owner, String uploadId) {
+		if (!isSession(uploadId)) {
+			return;
+		}
+		ReadWriteLock lock = getLock(uploadId);
+		lock.writeLock().lock();
+		try {
+			if (getMeta(owner, uploadId) == null) {
+				return;
+			}
+			File chunkFolder = getChunkFolder();
+			// .meta 를 먼저 지워야 잠금을 기다리던 조각 쓰기가 세션 없음으로 끝난다.
+			new File(chunkFolder, uploadId + ".meta").delete();
+			new File(chunkFolder, uploadId + ".part").delete();
+			new File(chunkFolder, uploadId + ".map").delete();
+		} finally {
+			lock.writeLock().unlock();
+			sessionLocks.remove(uploadId, lock);
+		}
+	}
+	
+	/**
+	 * <p>마지막 변경 후 지정한 시간이 지난 업로드 세션을 삭제하고 삭제한 세션 수를 리턴한다.</p>
+	 * 
+	 * @param expireMillis (세션 유지 시간 - 밀리초)
+	 * @return int         (삭제한 세션 수)
+	 */
+	public static int purge(long expireMillis) {
+		File[] metaFiles = getChunkFolder().listFiles();
+		if (metaFiles == null) {
+			return 0;
+		}
+		long expireTime = System.currentTimeMillis() - expireMillis;
+		int purgeCnt = 0;
+		for (File file : metaFiles) {
+			String fileName = file.getName();
+			if (!fileName.endsWith(".meta")) {
+				continue;
+			}
+			String uploadId = fileName.replaceAll("\\.meta$", "");
+			File partFile = new File(file.getParentFile(), uploadId + ".part");
+			if (Math.max(file.lastModified(), partFile.lastModified()) >= expireTime) {
+				continue;
+			}
+			// 조각을 쓰거나 완료 중인 세션은 다음에 삭제한다.
+			ReadWriteLock lock = getLock(uploadId);
+			if (!lock.writeLock().tryLock()) {
+				continue;
+			}
+			try {
+				if (file.delete()) {
+					partFile.delete();
+					new File(file.getParentFile(), uploadId + ".map").delete();
+					purgeCnt++;
+				}
+			} finally {
+				lock.writeLock().unlock();
+				sessionLocks.remove(uploadId, lock);
+			}
+		}
+		return purgeCnt;
+	}
+	
+	/**
+	 * <p>만료 세션 삭제 쓰레드를 종료한다. 애플리케이션 종료시 호출한다.</p>
+	 */
+	public static void shutdown() {
+		if (purger != null) {
+			purger.shutdownNow();
+		}
+	}
+	
+	/**
+	 * <p>조각 수를 리턴한다.</p>
+	 */
+	private static int getChunkCnt(long fileSize, int chunkSize) {
+		return (int) ((fileSize + chunkSize - 1) / chunkSize);
+	}
+	
+	/**
+	 * <p>업로드 ID별 잠금을 리턴한다. 잠금은 세션을 완료/취소/삭제할 때 제거한다.</p>
+	 */
+	private static ReadWriteLock getLock(String uploadId) {
+		ReadWriteLock lock = sessionLocks.get(uploadId);
+		if (lock == null) {
+			ReadWriteLock newLock = new ReentrantReadWriteLock();
+			lock = sessionLocks.putIfAbsent(uploadId, newLock);
+			if (lock == null) {
+				lock = newLock;
+			}
+		}
+		return lock;
+	}
+	
+	/**
+	 * <p>업로드 세션이 있는지 확인한다. 없는 업로드 ID로 잠금을 만들지 않도록 잠금 전에 확인한다.</p>
+	 */
+	private static boolean isSession(String uploadId) {
+		return isUploadId(uploadId) && new File(getChunkFolder(), uploadId + ".meta").isFile();
+	}
+	
+	private static boolean isUploadId(String uploadId) {
+		return uploadId != null && uploadId.matches("^[0-9a-f]{32}$");
+	}
+	
+	private static File getChunkFolder() {
+		return new File(FileUtil.cleanPath(Const.UPLOAD_PATH + CHUNK_PATH));
+	}
+	
+	/**
+	 * <p>업로드 세션 정보를 읽는다. 업로드 ID 형식이 틀리거나 요청자가 다르면 null을 리턴한다.</p>
+	 */
+	private static Properties getMeta(String owner, String uploadId) {
+		if (!isUploadId(uploadId)) {
+			return null;
+		}
+		File metaFile = new File(getChunkFolder(), uploadId + ".meta");
+		if (!metaFile.exists()) {
+			return null;
+		}
+		Properties meta = readMeta(metaFile);
+		if (meta != null && !StringUtil.clean(owner).equals(meta.getProperty("owner"))) {
+			logger.warn("분할 업로드 요청자 불일치 [업로드 ID : " + uploadId + "]");
+			return null;
+		}
+		return meta;
+	}
+	
+	private static Properties readMeta(File metaFile) {
+		InputStream is = null;
+		try {
+			is = new FileInputStream(metaFile);
+			Properties meta = new Properties();
+			meta.load(is);
+			return meta;
+		} catch (IOException e) {
+			logger.error(ExceptionUtil.addMessage(e, "분할 업로드 세션 읽기 실패!! [파일경로 : " + metaFile.getPath() + "]"));
+			return null;
+		} finally {
+			if (is != null) try { is.close(); } catch (Exception e) {};
+		}
+	}
+	
+	/**
+	 * <p>조각 수신 여부 배열을 읽는다.</p>
+	 */
+	private static byte[] getChunkMap(String uploadId) {
+		try {
+			return Files.readAllBytes(new File(getChunkFolder(), uploadId + ".map").toPath());
+		} catch (IOException e) {
+			logger.error(ExceptionUtil.addMessage(e, "분할 업로드 조각 정보 읽기 실패!! [업로드 ID : " + uploadId + "]"));
+			return null;
+		}
+	}
+	
+}
@@ -0,0 +1,312 @@
+/**
+ * ================================================================================================
+ * Copyright (c) 2003 JJang (Seon-joo, Jang)
+ * Licensed under the MIT license (http://www.opensource.org/licenses/MIT)
+ * 
+ * @Author      : Seon-joo, Jang (jeuse7@gmail.com)
+ * @File Name   : DownloadThrottle.java
+ * @Description : 파일 다운로드 대역폭, 동시 다운로드 수 제한 클래스.
+ *                전체와 사용자별(로그인 ID, 비로그인은 IP) 토큰 버킷으로 초당 전송량을 제한하고
+ *                동시 다운로드 수를 넘으면 전체 초과는 503, 사용자별 초과는 429를 응답한다.
+ *                설정은 global.properties download.throttle.* (0 이면 제한없음)
+ * @Version     : 3.0.0
+ * ================================================================================================
+ */
+package kr.co.akis.util;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class DownloadThrottle {
+	
+	private static final Logger logger = LoggerFactory.getLogger(DownloadThrottle.class);
+	
+	/** Too Many Requests (Servlet 2.5 에는 상수가 없음) */
+	public static final int SC_TOO_MANY_REQUESTS = 429;
+	
+	/** 전체 초당 전송량 (bytes) */
+	private static final long GLOBAL_RATE = Const.properties.getLong("download.throttle.globalRate", 0);
+	
+	/** 사용자별 초당 전송량 (bytes) */
+	private static final long USER_RATE = Const.properties.getLong("download.throttle.userRate", 0);
+	
+	/** 전체 최대 동시 다운로드 수 */
+	private static final int MAX_CONCURRENT = Const.properties.getInt("download.throttle.maxConcurrent", 0);
+	
+	/** 사용자별 최대 동시 다운로드 수 */
+	private static final int MAX_USER_CONCURRENT = Const.properties.getInt("download.throttle.maxUserConcurrent", 0);
+	
+	/** 제한 초과시 다시 요청할 때까지 기다릴 시간 (Retry-After, 초) */
+	private static final int RETRY_AFTER = Const.properties.getInt("download.throttle.retryAfter", 10);
+	
+	/** 전체 토큰 버킷 */
+	private static final TokenBucket GLOBAL_BUCKET = GLOBAL_RATE > 0 ? new TokenBucket(GLOBAL_RATE) : null;
+	
+	/** 전체 동시 다운로드 수 */
+	private static final AtomicInteger ACTIVE_CNT = new AtomicInteger();
+	
+	/** 사용자별 다운로드 상태 (다운로드 중인 사용자만 보관) */
+	private static final ConcurrentMap<String, UserEntry> USER_MAP = new ConcurrentHashMap<String, UserEntry>();
+	
+	/**
+	 * <p>다운로드 허가를 받는다. 동시 다운로드 수를 넘으면 429 또는 503을 응답하고 null을 리턴한다.</p>
+	 * <p>허가를 받으면 다운로드가 끝난 후 반드시 Permit.release 를 호출해야 한다.</p>
+	 * 
+	 * <pre>
+	 * DownloadThrottle.Permit permit = DownloadThrottle.acquire(request, response);
+	 * if (permit == null) {
+	 *     return;
+	 * }
+	 * try {
+	 *     OutputStream os = permit.wrap(response.getOutputStream());
+	 *     ...
+	 * } finally {
+	 *     permit.release();
+	 * }
+	 * </pre>
+	 * 
+	 * @param request  (HttpServletRequest 객체)
+	 * @param response (HttpServletResponse 객체)
+	 * @return Permit  (다운로드 허가, 제한 초과시 null)
+	 */
+	public static Permit acquire(HttpServletRequest request, HttpServletResponse response) {
+		String userKey = getUserKey(request);
+		if (MAX_CONCURRENT > 0 && ACTIVE_CNT.incrementAndGet() > MAX_CONCURRENT) {
+			ACTIVE_CNT.decrementAndGet();
+			reject(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE, "다운로드 요청이 많습니다. 잠시 후 다시 시도해 주세요.", userKey);
+			return null;
+		}
+		UserEntry userEntry = null;
+		if (USER_RATE > 0 || MAX_USER_CONCURRENT > 0) {
+			userEntry = getUserEntry(userKey);
+			if (MAX_USER_CONCURRENT > 0 && userEntry.activeCnt.get() > MAX_USER_CONCURRENT) {
+				releaseUserEntry(userKey, userEntry);
+				if (MAX_CONCURRENT > 0) {
+					ACTIVE_CNT.decrementAndGet();
+				}
+				reject(response, SC_TOO_MANY_REQUESTS, "동시에 다운로드할 수 있는 파일 수를 초과했습니다.", userKey);
+				return null;
+			}
+		}
+		return new Permit(userKey, userEntry);
+	}
+	
+	/**
+	 * <p>현재 전체 동시 다운로드 수를 리턴한다. (maxConcurrent 설정시에만 집계)</p>
+	 * 
+	 * @return int (동시 다운로드 수)
+	 */
+	public static int getActiveCnt() {
+		return ACTIVE_CNT.get();
+	}
+	
+	/**
+	 * <p>사용자 구분 키를 리턴한다. 로그인 사용자는 ID, 비로그인 사용자는 IP를 사용한다.</p>
+	 */
+	private static String getUserKey(HttpServletRequest request) {
+		String remoteUser = request.getRemoteUser();
+		return StringUtil.isBlank(remoteUser) ? "ip:" + request.getRemoteAddr() : "id:" + remoteUser;
+	}
+	
+	/**
+	 * <p>사용자별 다운로드 상태를 가져오면서 동시 다운로드 수를 1 늘린다.</p>
+	 */
+	private static UserEntry getUserEntry(String userKey) {
+		while (true) {
+			UserEntry userEntry = USER_MAP.get(userKey);
+			if (userEntry == null) {
+				UserEntry newEntry = new UserEntry();
+				userEntry = USER_MAP.putIfAbsent(userKey, newEntry);
+				if (userEntry == null) {
+					userEntry = newEntry;
+				}
+			}
+			synchronized (userEntry) {
+				// 다른 쓰레드가 방금 제거한 상태이면 다시 가져온다.
+				if (!userEntry.isRemoved) {
+					userEntry.activeCnt.incrementAndGet();
+					return userEntry;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * <p>동시 다운로드 수를 1 줄이고 0이 되면 사용자별 상태를 제거한다.</p>
+	 */
+	private static void releaseUserEntry(String userKey, UserEntry userEntry) {
+		synchronized (userEntry) {
+			if (userEntry.activeCnt.decrementAndGet() == 0) {
+				userEntry.isRemoved = true;
+				USER_MAP.remove(userKey, userEntry);
+			}
+		}
+	}
+	
+	private static void reject(HttpServletResponse response, int status, String message, String userKey) {
+		logger.warn("다운로드 제한 [상태 : " + status + ", 사용자 : " + userKey + ", 동시 다운로드 : " + ACTIVE_CNT.get() + "]");
+		try {
+			response.reset();
+			response.setHeader("Retry-After", String.valueOf(RETRY_AFTER));
+			response.sendError(status, message);
+		} catch (Exception e) {
+			logger.error(ExceptionUtil.addMessage(e, "다운로드 제한 응답 실패!!"));
+		}
+	}
+	
+	/**
+	 * <p>다운로드 허가 클래스. 전송량 제한이 있으면 wrap 한 출력 스트림으로 써야 한다.</p>
+	 */
+	public static class Permit {
+		
+		private final String userKey;
+		
+		private final UserEntry userEntry;
+		
+		private boolean isReleased = false;
+		
+		private Permit(String userKey, UserEntry userEntry) {
+			this.userKey = userKey;
+			this.userEntry = userEntry;
+		}
+		
+		/**
+		 * <p>다운로드 제한(전송량 또는 동시 다운로드 수) 여부를 리턴한다.</p>
+		 * <p>제한이 있으면 컨테이너 sendfile 처럼 출력 스트림을 거치지 않는 전송은 사용할 수 없다.
+		 * sendfile 은 요청 처리가 끝난 후 컨테이너가 전송하므로 finally 에서 release 한 뒤에도 전송이 계속되어
+		 * 동시 다운로드 수 제한(maxConcurrent, maxUserConcurrent)이 적용되지 않는다.</p>
+		 * 
+		 * @return boolean (다운로드 제한 여부)
+		 */
+		public boolean isThrottled() {
+			return isRateLimited() || MAX_CONCURRENT > 0 || MAX_USER_CONCURRENT > 0;
+		}
+		
+		private boolean isRateLimited() {
+			return GLOBAL_BUCKET != null || USER_RATE > 0;
+		}
+		
+		/**
+		 * <p>전송량 제한이 있으면 쓰는 만큼 토큰을 기다리는 출력 스트림을 리턴한다.</p>
+		 * 
+		 * @param os            (출력 스트림)
+		 * @return OutputStream (제한된 출력 스트림)
+		 */
+		public OutputStream wrap(OutputStream os) {
+			if (!isRateLimited()) {
+				return os;
+			}
+			return new FilterOutputStream(os) {
+				@Override
+				public void write(int b) throws IOException {
+					consume(1);
+					out.write(b);
+				}
+				
+				@Override
+				public void write(byte[] b, int off, int len) throws IOException {
+					// 한번에 많이 쓰면 버스트가 커지므로 나눠서 쓴다.
+					while (len > 0) {
+						int cnt = Math.min(len, TokenBucket.MAX_CHUNK);
+						consume(cnt);
+						out.write(b, off, cnt);
+						off += cnt;
+						len -= cnt;
+					}
+				}
+			};
+		}
+		
+		/**
+		 * <p>다운로드가 끝났음을 알린다. 여러번 호출해도 된다.</p>
+		 */
+		public void release() {
+			if (isReleased) {
+				return;
+			}
+			isReleased = true;
+			if (MAX_CONCURRENT > 0) {
+				ACTIVE_CNT.decrementAndGet();
+			}
+			if (userEntry != null) {
+				releaseUserEntry(userKey, userEntry);
+			}
+		}
+		
+		private void consume(int bytes) throws IOException {
+			try {
+				if (userEntry != null && userEntry.bucket != null) {
+					userEntry.bucket.consume(bytes);
+				}
+				if (GLOBAL_BUCKET != null) {
+					GLOBAL_BUCKET.consume(bytes);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("다운로드 전송 대기 중 인터럽트", e);
+			}
+		}
+		
+	}
+	
+	/**
+	 * <p>사용자별 다운로드 상태.</p>
+	 */
+	private static class UserEntry {
+		
+		private final TokenBucket bucket = USER_RATE > 0 ? new TokenBucket(USER_RATE) : null;
+		
+		private final AtomicInteger activeCnt = new AtomicInteger();
+		
+		private boolean isRemoved = false;
+		
+	}
+	
+	/**
+	 * <p>토큰 버킷. 초당 rate 만큼 토큰이 쌓이고 최대 1초 분량까지 모아둘 수 있다.</p>
+	 * <p>토큰이 모자라면 먼저 빌려 쓰고(음수) 갚을 때까지 기다리므로 대기 순서대로 공평하게 나눠진다.</p>
+	 */
+	private static class TokenBucket {
+		
+		/** 한번에 소비하는 최대 bytes */
+		private static final int MAX_CHUNK = 16 * 1024;
+		
+		private final long rate;
+		
+		private double tokens;
+		
+		private long lastTime = System.nanoTime();
+		
+		private TokenBucket(long rate) {
+			this.rate = rate;
+			this.tokens = rate;
+		}
+		
+		private void consume(long bytes) throws InterruptedException {
+			long waitNanos;
+			synchronized (this) {
+				long now = System.nanoTime();
+				tokens = Math.min(rate, tokens + (now - lastTime) * rate / 1e9);
+				lastTime = now;
+				tokens -= bytes;
+				waitNanos = tokens < 0 ? (long) (-tokens * 1e9 / rate) : 0;
+			}
+			if (waitNanos > 0) {
+				TimeUnit.NANOSECONDS.sleep(waitNanos);
+			}
+		}
+		
+	}
+	
+}
@@ -0,0 +1,313 @@
+/**
+ * ================================================================================================
+ * Copyright (c) 2003 JJang (Seon-joo, Jang)
+ * Licensed under the MIT license (http://www.opensource.org/licenses/MIT)
+ * 
+ * @Author      : Seon-joo, Jang (jeuse7@gmail.com)
+ * @File Name   : FileDedupStore.java
+ * @Description : 내용 해시(SHA-256) 기반 중복제거 첨부파일 저장소 클래스.
+ *                업로드 스트림을 임시파일에 쓰면서 해시를 계산하고 같은 내용의 파일은 한번만 저장한 뒤
+ *                참조 수(.ref 파일)로 관리한다. 저장 위치는 업로드 경로 /store/해시 앞 2자리/다음 2자리/해시 이다.
+ *                .ref 파일은 잠금 대상이므로 참조 수가 0 이 되어도 지우지 않고 0 을 기록한다. (저장소 파일만 삭제)
+ *                같은 파일을 여러 게시물이 공유하므로 삭제는 FileUtil.delete 가 아니라 release 로 해야 한다.
+ * @Version     : 3.0.0
+ * ================================================================================================
+ */
+package kr.co.akis.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.multipart.MultipartFile;
+
+public class FileDedupStore {
+	
+	private static final Logger logger = LoggerFactory.getLogger(FileDedupStore.class);
+	
+	/** 저장소 서브경로 (업로드 경로 기준) */
+	public static final String STORE_PATH = "/store";
+	
+	/** 해시 알고리즘 */
+	public static final String HASH_ALGORITHM = "SHA-256";
+	
+	/** 스트림 복사 버퍼 크기 */
+	private static final int BUFFER_SIZE = 64 * 1024;
+	
+	/** 참조 수 갱신용 잠금 (해시별로 나눠서 잠근다.) */
+	private static final Object[] LOCKS = new Object[64];
+	
+	static {
+		for (int i = 0; i < LOCKS.length; i++) {
+			LOCKS[i] = new Object();
+		}
+	}
+	
+	/**
+	 * <p>업로드 파일을 저장소에 저장하고 FileUpload.upload 와 같은 키의 파일정보를 리턴한다.</p>
+	 * <p>파일정보에 내용 해시(fileHash)가 추가되며, 같은 내용의 파일이 이미 있으면 참조 수만 늘린다.</p>
+	 * <p>MultipartResolver 가 임시경로에 써 둔 파일은 transferTo 로 옮긴 후 읽어서 해시만 계산한다. (다시 복사하지 않음)</p>
+	 * 
+	 * @param file                            (MultipartFile 객체)
+	 * @param fileSummary                     (첨부파일 요약 내용)
+	 * @return {@literal Map<String, Object>} (저장한 파일정보)
+	 */
+	public static Map<String, Object> store(MultipartFile file, String fileSummary) {
+		Map<String, Object> fileMap = null;
+		File tempFile = null;
+		try {
+			if (file != null && !file.isEmpty()) {
+				tempFile = createTempFile();
+				file.transferTo(tempFile);
+				String fileHash = digest(tempFile);
+				commit(tempFile, fileHash);
+				fileMap = new HashMap<String, Object>();
+				fileMap.put("fileDiv", file.getName().replaceAll("File$", ""));
+				fileMap.put("savePath", getSavePath(fileHash));
+				fileMap.put("saveName", fileHash);
+				fileMap.put("orgnName", file.getOriginalFilename());
+				fileMap.put("fileExt", FileUtil.getFileExt(file.getOriginalFilename()));
+				fileMap.put("fileSize", file.getSize());
+				fileMap.put("contentType", file.getContentType());
+				fileMap.put("fileSummary", StringUtil.clean(fileSummary));
+				fileMap.put("fileHash", fileHash);
+			}
+		} catch (Exception e) {
+			logger.error(ExceptionUtil.addMessage(e, "첨부파일 저장소 저장 실패!!"));
+		} finally {
+			if (tempFile != null && tempFile.exists()) {
+				tempFile.delete();
+			}
+		}
+		return fileMap;
+	}
+	
+	/**
+	 * <p>스트림을 임시파일에 쓰면서 해시를 계산하고 저장소에 저장한 후 내용 해시를 리턴한다.</p>
+	 * 
+	 * @param is        (입력 스트림)
+	 * @return String   (내용 해시 - 16진수 소문자)
+	 * @throws Exception
+	 */
+	public static String store(InputStream is) throws Exception {
+		File tempFile = createTempFile();
+		try {
+			MessageDigest md = MessageDigest.getInstance(HASH_ALGORITHM);
+			OutputStream os = new FileOutputStream(tempFile);
+			try {
+				byte[] b = new byte[BUFFER_SIZE];
+				int len = 0;
+				while ((len = is.read(b)) != -1) {
+					md.update(b, 0, len);
+					os.write(b, 0, len);
+				}
+			} finally {
+				os.close();
+			}
+			String fileHash = toHex(md.digest());
+			commit(tempFile, fileHash);
+			return fileHash;
+		} finally {
+			if (tempFile.exists()) {
+				tempFile.delete();
+			}
+		}
+	}
+	
+	/**
+	 * <p>파일을 읽어서 내용 해시를 계산한다.</p>
+	 */
+	private static String digest(File file) throws Exception {
+		MessageDigest md = MessageDigest.getInstance(HASH_ALGORITHM);
+		InputStream is = new FileInputStream(file);
+		try {
+			byte[] b = new byte[BUFFER_SIZE];
+			int len = 0;
+			while ((len = is.read(b)) != -1) {
+				md.update(b, 0, len);
+			}
+		} finally {
+			is.close();
+		}
+		return toHex(md.digest());
+	}
+	
+	/**
+	 * <p>해시 계산이 끝난 임시파일을 저장소로 옮기고 참조 수를 1 늘린다. 같은 내용이 이미 있으면 임시파일은 버린다.</p>
+	 * 
+	 * @param tempFile (해시 계산이 끝난 임시파일, 저장소와 같은 디스크)
+	 * @param fileHash (내용 해시)
+	 * @return int     (늘어난 참조 수)
+	 * @throws IOException
+	 */
+	public static int commit(File tempFile, String fileHash) throws IOException {
+		if (!isHash(fileHash)) {
+			throw new IllegalArgumentException("잘못된 내용 해시 입니다. [해시 : " + fileHash + "]");
+		}
+		synchronized (getLock(fileHash)) {
+			return updateRefCnt(fileHash, 1, tempFile);
+		}
+	}
+	
+	/**
+	 * <p>파일의 참조를 하나 해제한다. 참조 수가 0이 되면 파일을 삭제한다.</p>
+	 * 
+	 * @param fileMap  (파일정보 Map - fileHash 또는 saveName)
+	 * @return int     (남은 참조 수)
+	 */
+	public static int release(Map<String, Object> fileMap) {
+		String fileHash = StringUtil.clean(fileMap.get("fileHash"));
+		return release(StringUtil.isBlank(fileHash) ? StringUtil.clean(fileMap.get("saveName")) : fileHash);
+	}
+	
+	/**
+	 * <p>파일의 참조를 하나 해제한다. 참조 수가 0이 되면 파일을 삭제한다.</p>
+	 * 
+	 * @param fileHash (내용 해시)
+	 * @return int     (남은 참조 수, 저장소 파일이 아니면 -1)
+	 */
+	public static int release(String fileHash) {
+		if (!isHash(fileHash)) {
+			return -1;
+		}
+		synchronized (getLock(fileHash)) {
+			// .ref 파일은 지우지 않으므로 없으면 한번도 저장하지 않은 파일이다.
+			if (!getRefFile(fileHash).exists()) {
+				return 0;
+			}
+			try {
+				return updateRefCnt(fileHash, -1, null);
+			} catch (Exception e) {
+				logger.error(ExceptionUtil.addMessage(e, "첨부파일 저장소 참조 해제 실패!! [해시 : " + fileHash + "]"));
+				return -1;
+			}
+		}
+	}
+	
+	/**
+	 * <p>파일의 참조 수를 리턴한다.</p>
+	 * 
+	 * @param fileHash (내용 해시)
+	 * @return int     (참조 수)
+	 */
+	public static int getRefCnt(String fileHash) {
+		if (!isHash(fileHash)) {
+			return 0;
+		}
+		File refFile = getRefFile(fileHash);
+		if (!refFile.exists()) {
+			return 0;
+		}
+		return NumberUtil.toInt(FileUtil.read(refFile).trim(), 0);
+	}
+	
+	/**
+	 * <p>내용 해시의 저장 서브경로(업로드 경로 기준)를 리턴한다.</p>
+	 * 
+	 * <pre>
+	 * FileDedupStore.getSavePath("9f86d081...") = "/store/9f/86"
+	 * </pre>
+	 * 
+	 * @param fileHash (내용 해시)
+	 * @return String  (저장 서브경로)
+	 */
+	public static String getSavePath(String fileHash) {
+		return STORE_PATH + "/" + fileHash.substring(0, 2) + "/" + fileHash.substring(2, 4);
+	}
+	
+	/**
+	 * <p>내용 해시의 저장소 파일을 리턴한다.</p>
+	 * 
+	 * @param fileHash (내용 해시)
+	 * @return File    (저장소 파일)
+	 */
+	public static File getFile(String fileHash) {
+		return new File(FileUtil.cleanPath(Const.UPLOAD_PATH + getSavePath(fileHash)), fileHash);
+	}
+	
+	/**
+	 * <p>저장소와 같은 디스크에 임시파일을 생성한다. (저장소로 옮길 때 복사없이 이름만 바꾸기 위함)</p>
+	 * 
+	 * @return File (임시파일)
+	 * @throws IOException
+	 */
+	public static File createTempFile() throws IOException {
+		File tempFolder = new File(FileUtil.cleanPath(Const.UPLOAD_PATH + STORE_PATH + "/temp"));
+		tempFolder.mkdirs();
+		return File.createTempFile("upload", ".tmp", tempFolder);
+	}
+	
+	/**
+	 * <p>참조 수 파일을 잠그고 참조 수를 변경한 후 변경된 참조 수를 리턴한다.</p>
+	 * <p>여러 서버가 같은 디스크를 공유하는 경우에 대비해서 저장소 파일 이동, 삭제도 잠근 상태에서 처리한다.
+	 * 잠금을 기다리는 다른 프로세스가 지워진 파일에 기록하지 않도록 .ref 파일은 지우지 않고 0 을 기록한다.</p>
+	 */
+	private static int updateRefCnt(String fileHash, int delta, File tempFile) throws IOException {
+		File blobFile = getFile(fileHash);
+		File refFile = getRefFile(fileHash);
+		blobFile.getParentFile().mkdirs();
+		RandomAccessFile raf = new RandomAccessFile(refFile, "rw");
+		try {
+			FileLock lock = raf.getChannel().lock();
+			try {
+				if (tempFile != null && !blobFile.exists()) {
+					Files.move(tempFile.toPath(), blobFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+				}
+				String refStr = raf.length() > 0 ? raf.readLine() : null;
+				int refCnt = Math.max(0, NumberUtil.toInt(StringUtil.clean(refStr), 0) + delta);
+				if (refCnt == 0 && blobFile.exists() && !blobFile.delete()) {
+					throw new IOException("저장소 파일 삭제 실패!! [파일경로 : " + blobFile.getPath() + "]");
+				}
+				raf.setLength(0);
+				raf.seek(0);
+				raf.writeBytes(String.valueOf(refCnt));
+				return refCnt;
+			} finally {
+				lock.release();
+			}
+		} finally {
+			raf.close();
+		}
+	}
+	
+	private static File getRefFile(String fileHash) {
+		return new File(FileUtil.cleanPath(Const.UPLOAD_PATH + getSavePath(fileHash)), fileHash + ".ref");
+	}
+	
+	private static Object getLock(String fileHash) {
+		return LOCKS[(fileHash.hashCode() & 0x7fffffff) % LOCKS.length];
+	}
+	
+	private static boolean isHash(String fileHash) {
+		return fileHash != null && fileHash.length() == 64 && fileHash.matches("^[0-9a-f]+$");
+	}
+	
+	/**
+	 * <p>byte 배열을 16진수 소문자 문자로 변환한다.</p>
+	 * 
+	 * @param bytes   (byte 배열)
+	 * @return String (16진수 문자)
+	 */
+	public static String toHex(byte[] bytes) {
+		char[] hexChars = "0123456789abcdef".toCharArray();
+		char[] chars = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			chars[i * 2] = hexChars[(bytes[i] >> 4) & 0x0f];
+			chars[i * 2 + 1] = hexChars[bytes[i] & 0x0f];
+		}
+		return new String(chars);
+	}
+	
+}
@@ -13,11 +13,25 @@
  */
 package kr.co.akis.util;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -29,8 +43,36 @@ public class FileDownload {
 	
 	private static final Logger logger = LoggerFactory.getLogger(FileDownload.class);
 	
+	/** 파일 복사 버퍼 크기 */
+	private static final int BUFFER_SIZE = 64 * 1024;
+	
+	/** 전송 중 출력 스트림을 flush 하는 간격 (컨테이너 버퍼에 쌓아두지 않고 소켓으로 밀어내며 연결 끊김을 빨리 감지한다.) */
+	private static final long FLUSH_SIZE = 4 * 1024 * 1024;
+	
+	/** 컨테이너 sendfile을 사용할 최소 파일 크기 (Tomcat DefaultServlet 기본값과 동일) */
+	private static final long SENDFILE_MIN_SIZE = 48 * 1024;
+	
+	/** 쓰레드별로 재사용하는 파일 복사 버퍼 */
+	private static final ThreadLocal<byte[]> COPY_BUFFER = new ThreadLocal<byte[]>() {
+		@Override
+		protected byte[] initialValue() {
+			return new byte[BUFFER_SIZE];
+		}
+	};
+	
+	/** 한번에 요청할 수 있는 최대 Range 구간 수 (초과하면 전체 파일을 보낸다.) */
+	private static final int MAX_RANGE_CNT = 16;
+	
+	/** 이미 압축된 파일 확장자 (ZIP 다운로드시 다시 압축하지 않는다.) */
+	private static final Set<String> COMPRESSED_EXTS = new HashSet<String>(Arrays.asList(
+		"zip", "gz", "tgz", "bz2", "xz", "7z", "rar", "alz", "egg", "jar",
+		"jpg", "jpeg", "png", "gif", "webp", "heic",
+		"mp3", "m4a", "aac", "ogg", "mp4", "m4v", "mov", "avi", "wmv", "mkv", "webm",
+		"docx", "xlsx", "pptx", "hwpx", "odt", "ods", "odp"));
+	
 	/**
 	 * <p>파일 다운로드를 처리한다.</p>
+	 * <p>파일정보에 내용 해시(fileHash)가 있으면 ETag로 사용한다.</p>
 	 * 
 	 * @param request  (HttpServletRequest 객체)
 	 * @param response (HttpServletResponse 객체)
@@ -41,12 +83,9 @@ public class FileDownload {
 		String saveName = StringUtil.clean(fileMap.get("saveName"));
 		String orgnName = StringUtil.clean(fileMap.get("orgnName"));
 		String contentType = StringUtil.clean(fileMap.get("contentType"));
-		if (!StringUtil.isBlank(savePath) && !StringUtil.isBlank(saveName) && !StringUtil.isBlank(orgnName) && !StringUtil.isBlank(contentType)) {
-			download(request, response, savePath, saveName, orgnName, contentType);
-		} else if (!StringUtil.isBlank(savePath) && !StringUtil.isBlank(saveName) && !StringUtil.isBlank(orgnName)) {
-			download(request, response, savePath, saveName, orgnName);
-		} else if (!StringUtil.isBlank(savePath) && !StringUtil.isBlank(saveName)) {
-			download(request, response, savePath, saveName);
+		String fileHash = StringUtil.clean(fileMap.get("fileHash"));
+		if (!StringUtil.isBlank(savePath) && !StringUtil.isBlank(saveName)) {
+			download(request, response, savePath, saveName, StringUtil.isBlank(orgnName) ? saveName : orgnName, StringUtil.isBlank(contentType) ? null : contentType, fileHash);
 		} else {
 			JsUtil.back(response, "다운로드 받을 파일정보가 없습니다!!");
 		}
@@ -137,6 +176,25 @@ public class FileDownload {
 	 * @param contentType (파일 콘텐츠타입)
 	 */
 	public static void download(HttpServletRequest request, HttpServletResponse response, String savePath, String saveName, String orgnName, String contentType) {
+		download(request, response, savePath, saveName, orgnName, contentType, null);
+	}
+	
+	/**
+	 * <p>파일 다운로드를 처리한다.</p>
+	 * <p>저장된 첨부파일은 바뀌지 않으므로 ETag, Last-Modified 를 보내고 If-None-Match, If-Modified-Since 가
+	 * 일치하면 본문없이 304를 응답한다. Cache-Control: no-cache 이므로 브라우저와 프록시는 저장해 두되
+	 * 매번 서버에 확인(권한 체크 포함)을 받은 후에 사용한다.</p>
+	 * <p>본문 전송은 DownloadThrottle 의 동시 다운로드 수, 전송량 제한을 따른다.</p>
+	 * 
+	 * @param request     (HttpServletRequest 객체)
+	 * @param response    (HttpServletResponse 객체)
+	 * @param savePath    (파일 저장경로)
+	 * @param saveName    (저장 파일명)
+	 * @param orgnName    (원본 파일명)
+	 * @param contentType (파일 콘텐츠타입)
+	 * @param fileHash    (파일 내용 해시 - 16진수, null 가능. 없으면 저장 파일명, 크기, 수정시간으로 ETag 생성)
+	 */
+	public static void download(HttpServletRequest request, HttpServletResponse response, String savePath, String saveName, String orgnName, String contentType, String fileHash) {
 		if (StringUtil.isBlank(savePath)) {
 			JsUtil.back(response, "다운로드 파일경로가 지정되지 않았습니다!!");
 		} else if (StringUtil.containsArr(savePath, "./|../|.\\|..\\|\r|\n|\r\n", "[|]")) {
@@ -152,32 +210,94 @@ public class FileDownload {
 		} else if (StringUtil.containsArr(contentType, "\r|\n|\r\n", "[|]")) {
 			JsUtil.back(response, "잘못된 파일타입이 지정 되었습니다!!");
 		} else {
-			File downloadFile = new File(FileUtil.cleanPath(savePath), saveName);
+			File downloadFile = FileShard.getFile(FileUtil.cleanPath(savePath), saveName);
 			if (downloadFile.exists() && downloadFile.length() > 0) {
-				BufferedInputStream bis = null;
-				BufferedOutputStream bos = null;
+				RandomAccessFile raf = null;
+				OutputStream os = null;
+				DownloadThrottle.Permit permit = null;
 				try {
+					long fileLen = downloadFile.length();
+					long lastModified = downloadFile.lastModified();
+					String eTag = StringUtil.clean(fileHash).matches("^[0-9a-fA-F]+$") ? "\"" + fileHash + "\"" : getETag(downloadFile);
+					List<long[]> rangeList = getRanges(request, fileLen, eTag, lastModified);
+					String fileType = StringUtil.isBlank(contentType) ? "application/octet-stream" : contentType;
 					response.reset();
-					//response.setBufferSize((int)downloadFile.length());
-					response.setContentType(StringUtil.isBlank(contentType) ? "application/octet-stream" : contentType);
-					response.setContentLength((int)downloadFile.length());
+					response.setHeader("Accept-Ranges", "bytes");
+					response.setHeader("ETag", eTag);
+					response.setDateHeader("Last-Modified", lastModified);
+					response.setHeader("Cache-Control", "no-cache");
+					if (isNotModified(request, eTag, lastModified)) {
+						response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+						return;
+					}
+					if (rangeList == null) {
+						response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+						response.setHeader("Content-Range", "bytes */" + fileLen);
+						return;
+					}
+					// 동시 다운로드 수, 전송량 제한
+					permit = DownloadThrottle.acquire(request, response);
+					if (permit == null) {
+						return;
+					}
 					setDisposition(request, response, orgnName);
-					//response.setHeader("Content-Transfer-Encoding", "binary");
-					bis = new BufferedInputStream(new FileInputStream(downloadFile));
-					bos = new BufferedOutputStream(response.getOutputStream());
-					//FileCopyUtils.copy(bis, bos);
-					//bos.flush();
-					int len = 0;
-					byte[] b = new byte[2048];
-					while ((len = bis.read(b)) != -1) {
-						bos.write(b, 0, len);
+					if (rangeList.size() <= 1) {
+						// 전체 파일 또는 단일 구간
+						long start = 0;
+						long length = fileLen;
+						response.setContentType(fileType);
+						if (rangeList.isEmpty()) {
+							setContentLength(response, fileLen);
+						} else {
+							long[] range = rangeList.get(0);
+							start = range[0];
+							length = range[1] - range[0] + 1;
+							response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+							response.setHeader("Content-Range", "bytes " + range[0] + "-" + range[1] + "/" + fileLen);
+							setContentLength(response, length);
+						}
+						if (!permit.isThrottled() && setSendfile(request, downloadFile, start, length)) {
+							return;
+						}
+						raf = new RandomAccessFile(downloadFile, "r");
+						os = permit.wrap(response.getOutputStream());
+						copy(raf.getChannel(), os, start, length);
+					} else {
+						// 다중 구간 (multipart/byteranges)
+						String boundary = UUID.randomUUID().toString().replaceAll("-", "");
+						String endBoundary = "\r\n--" + boundary + "--\r\n";
+						String[] partHeaders = new String[rangeList.size()];
+						long contentLen = endBoundary.length();
+						for (int i = 0; i < rangeList.size(); i++) {
+							long[] range = rangeList.get(i);
+							partHeaders[i] = "\r\n--" + boundary + "\r\nContent-Type: " + fileType + "\r\nContent-Range: bytes " + range[0] + "-" + range[1] + "/" + fileLen + "\r\n\r\n";
+							contentLen += partHeaders[i].getBytes("ISO-8859-1").length + range[1] - range[0] + 1;
+						}
+						response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+						response.setContentType("multipart/byteranges; boundary=" + boundary);
+						setContentLength(response, contentLen);
+						raf = new RandomAccessFile(downloadFile, "r");
+						os = permit.wrap(response.getOutputStream());
+						for (int i = 0; i < rangeList.size(); i++) {
+							long[] range = rangeList.get(i);
+							os.write(partHeaders[i].getBytes("ISO-8859-1"));
+							copy(raf.getChannel(), os, range[0], range[1] - range[0] + 1);
+						}
+						os.write(endBoundary.getBytes("ISO-8859-1"));
 					}
+					os.flush();
 				} catch (Exception e) {
-					logger.error(ExceptionUtil.addMessage(e, "첨부파일 다운로드 실패!! [파일경로 : " + downloadFile.toString() + "]"));
-					JsUtil.back(response, "첨부파일 다운로드 실패!!");
+					if (response.isCommitted()) {
+						// 전송 중 사용자가 연결을 끊은 경우 (이미 보낸 응답에 스크립트를 덧붙이지 않는다.)
+						logger.warn("첨부파일 전송 중단 [파일경로 : " + downloadFile.toString() + ", 사유 : " + e.toString() + "]");
+					} else {
+						logger.error(ExceptionUtil.addMessage(e, "첨부파일 다운로드 실패!! [파일경로 : " + downloadFile.toString() + "]"));
+						JsUtil.back(response, "첨부파일 다운로드 실패!!");
+					}
 				} finally {
-					if (bos != null) try { bos.close(); } catch (Exception e) {};
-					if (bis != null) try { bis.close(); } catch (Exception e) {};
+					if (os != null) try { os.close(); } catch (Exception e) {};
+					if (raf != null) try { raf.close(); } catch (Exception e) {};
+					if (permit != null) permit.release();
 				}
 			} else {
 				logger.warn("다운로드 받을 파일이 존재하지 않습니다. [파일경로 : " + downloadFile.toString() + "]");
@@ -186,4 +306,312 @@ public class FileDownload {
 		}
 	}
 	
-}
+	/**
+	 * <p>여러 파일을 하나의 ZIP 파일로 묶어서 다운로드한다.</p>
+	 * <p>임시 ZIP 파일을 만들지 않고 파일을 하나씩 읽어서 바로 응답으로 압축해 보내므로 파일 수, 크기와 상관없이
+	 * 메모리 사용량이 일정하다. 이미 압축된 형식(이미지, 동영상, zip, docx 등)은 압축하지 않고 그대로 담는다.</p>
+	 * <p>파일정보의 savePath, saveName 은 download(request, response, fileMap) 과 같으며 같은 이름의 파일은
+	 * "이름 (1).확장자" 형식으로 바꿔서 담는다. 존재하지 않는 파일은 제외한다.</p>
+	 * 
+	 * @param request  (HttpServletRequest 객체)
+	 * @param response (HttpServletResponse 객체)
+	 * @param fileList (파일정보 Map 리스트)
+	 * @param zipName  (다운로드 ZIP 파일명)
+	 */
+	public static void downloadZip(HttpServletRequest request, HttpServletResponse response, List<Map<String, Object>> fileList, String zipName) {
+		if (StringUtil.isBlank(zipName) || StringUtil.containsArr(zipName, "./|../|.\\|..\\|\r|\n|\r\n", "[|]")) {
+			JsUtil.back(response, "잘못된 다운로드 파일명이 지정 되었습니다!!");
+			return;
+		}
+		// 전송 전에 모든 파일을 검사한다. (전송 시작 후에는 오류 메시지를 보낼 수 없다.)
+		List<File> zipFileList = new ArrayList<File>();
+		List<String> entryNameList = new ArrayList<String>();
+		Set<String> entryNameSet = new HashSet<String>();
+		if (fileList != null) {
+			for (Map<String, Object> fileMap : fileList) {
+				String savePath = StringUtil.clean(fileMap.get("savePath"));
+				String saveName = StringUtil.clean(fileMap.get("saveName"));
+				String orgnName = StringUtil.clean(fileMap.get("orgnName"), saveName);
+				if (StringUtil.isBlank(savePath) || StringUtil.containsArr(savePath, "./|../|.\\|..\\|\r|\n|\r\n", "[|]")
+						|| StringUtil.isBlank(saveName) || StringUtil.containsArr(saveName, "./|../|.\\|..\\|\r|\n|\r\n", "[|]")) {
+					JsUtil.back(response, "잘못된 다운로드 파일경로가 지정 되었습니다!!");
+					return;
+				}
+				File file = FileShard.getFile(FileUtil.cleanPath(savePath), saveName);
+				if (!file.isFile()) {
+					logger.warn("다운로드 받을 파일이 존재하지 않습니다. [파일경로 : " + file.toString() + "]");
+					continue;
+				}
+				zipFileList.add(file);
+				entryNameList.add(getEntryName(FileUtil.getFileName(orgnName.replaceAll("[\\r\\n]", "")), entryNameSet));
+			}
+		}
+		if (zipFileList.isEmpty()) {
+			JsUtil.back(response, "다운로드 받을 파일이 존재하지 않습니다!!");
+			return;
+		}
+		DownloadThrottle.Permit permit = DownloadThrottle.acquire(request, response);
+		if (permit == null) {
+			return;
+		}
+		ZipOutputStream zos = null;
+		try {
+			response.reset();
+			response.setContentType("application/zip");
+			response.setHeader("Cache-Control", "no-cache");
+			setDisposition(request, response, zipName);
+			zos = new ZipOutputStream(permit.wrap(response.getOutputStream()), StandardCharsets.UTF_8);
+			byte[] b = new byte[BUFFER_SIZE];
+			for (int i = 0; i < zipFileList.size(); i++) {
+				File file = zipFileList.get(i);
+				String entryName = entryNameList.get(i);
+				// 이미 압축된 형식은 압축하지 않는다. (Deflate 무압축 블록으로 CPU를 쓰지 않고 한번만 읽는다.)
+				zos.setLevel(COMPRESSED_EXTS.contains(FileUtil.getFileExtLowerCase(entryName)) ? Deflater.NO_COMPRESSION : Deflater.DEFAULT_COMPRESSION);
+				ZipEntry entry = new ZipEntry(entryName);
+				entry.setTime(file.lastModified());
+				zos.putNextEntry(entry);
+				InputStream is = new FileInputStream(file);
+				try {
+					int len = 0;
+					while ((len = is.read(b)) != -1) {
+						zos.write(b, 0, len);
+					}
+				} finally {
+					is.close();
+				}
+				zos.closeEntry();
+			}
+			zos.finish();
+			zos.flush();
+		} catch (Exception e) {
+			if (response.isCommitted()) {
+				logger.warn("ZIP 파일 전송 중단 [파일명 : " + zipName + ", 사유 : " + e.toString() + "]");
+			} else {
+				logger.error(ExceptionUtil.addMessage(e, "ZIP 파일 다운로드 실패!! [파일명 : " + zipName + "]"));
+				JsUtil.back(response, "ZIP 파일 다운로드 실패!!");
+			}
+		} finally {
+			if (zos != null) try { zos.close(); } catch (Exception e) {};
+			permit.release();
+		}
+	}
+	
+	/**
+	 * <p>ZIP 파일 안에서 겹치지 않는 파일명을 리턴한다.</p>
+	 */
+	private static String getEntryName(String orgnName, Set<String> entryNameSet) {
+		String entryName = orgnName;
+		int dotIdx = orgnName.lastIndexOf('.');
+		String name = dotIdx > 0 ? orgnName.substring(0, dotIdx) : orgnName;
+		String ext = dotIdx > 0 ? orgnName.substring(dotIdx) : "";
+		for (int i = 1; !entryNameSet.add(entryName.toLowerCase()); i++) {
+			entryName = name + " (" + i + ")" + ext;
+		}
+		return entryName;
+	}
+	
+	/**
+	 * <p>파일의 ETag(저장 파일명 해시-파일크기-수정시간)를 리턴한다.</p>
+	 * 
+	 * @param file    (파일 객체)
+	 * @return String (ETag)
+	 */
+	public static String getETag(File file) {
+		return "\"" + Integer.toHexString(file.getName().hashCode()) + "-" + Long.toHexString(file.length()) + "-" + Long.toHexString(file.lastModified()) + "\"";
+	}
+	
+	/**
+	 * <p>If-None-Match, If-Modified-Since 헤더로 사용자가 가진 파일이 최신인지 체크한다.</p>
+	 * <p>If-None-Match 가 있으면 If-Modified-Since 는 무시한다.</p>
+	 * 
+	 * @param request      (HttpServletRequest 객체)
+	 * @param eTag         (파일 ETag)
+	 * @param lastModified (파일 수정시간)
+	 * @return boolean     (304 응답 여부)
+	 */
+	static boolean isNotModified(HttpServletRequest request, String eTag, long lastModified) {
+		String ifNoneMatch = StringUtil.clean(request.getHeader("If-None-Match"));
+		if (!StringUtil.isBlank(ifNoneMatch)) {
+			for (String matchTag : ifNoneMatch.split(",")) {
+				matchTag = matchTag.trim();
+				if (matchTag.startsWith("W/")) {
+					matchTag = matchTag.substring(2);
+				}
+				if ("*".equals(matchTag) || matchTag.equals(eTag)) {
+					return true;
+				}
+			}
+			return false;
+		}
+		try {
+			long ifModifiedSince = request.getDateHeader("If-Modified-Since");
+			return ifModifiedSince != -1 && lastModified / 1000 <= ifModifiedSince / 1000;
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+	}
+	
+	/**
+	 * <p>Range, If-Range 헤더를 해석해서 보낼 구간 리스트({시작, 끝})를 리턴한다.</p>
+	 * <p>전체 파일을 보내야 하면 빈 리스트를, 만족하는 구간이 없으면(416) null을 리턴한다.</p>
+	 * 
+	 * <pre>
+	 * Range 없음, 형식 오류, If-Range 불일치    = []
+	 * bytes=0-499 (1000 bytes 파일)             = [{0, 499}]
+	 * bytes=500-  (1000 bytes 파일)             = [{500, 999}]
+	 * bytes=-200  (1000 bytes 파일)             = [{800, 999}]
+	 * bytes=0-99,200-299                        = [{0, 99}, {200, 299}]
+	 * bytes=1000-1100 (1000 bytes 파일)         = null
+	 * bytes=-10 (3221225472 bytes 파일)         = [{3221225462, 3221225471}]
+	 * bytes=3000000000-3000000009               = [{3000000000, 3000000009}]
+	 * </pre>
+	 * 
+	 * @param request            (HttpServletRequest 객체)
+	 * @param fileLen            (파일 크기)
+	 * @param eTag               (파일 ETag)
+	 * @param lastModified       (파일 수정시간)
+	 * @return {@literal List<long[]>} (보낼 구간 리스트)
+	 */
+	private static List<long[]> getRanges(HttpServletRequest request, long fileLen, String eTag, long lastModified) {
+		List<long[]> rangeList = new ArrayList<long[]>();
+		String rangeHeader = StringUtil.clean(request.getHeader("Range"));
+		if (!rangeHeader.startsWith("bytes=")) {
+			return rangeList;
+		}
+		// If-Range : 파일이 바뀌었으면 전체 파일을 보낸다.
+		String ifRange = StringUtil.clean(request.getHeader("If-Range"));
+		if (!StringUtil.isBlank(ifRange)) {
+			if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+				if (!ifRange.equals(eTag)) {
+					return rangeList;
+				}
+			} else {
+				try {
+					if (lastModified / 1000 != request.getDateHeader("If-Range") / 1000) {
+						return rangeList;
+					}
+				} catch (IllegalArgumentException e) {
+					return rangeList;
+				}
+			}
+		}
+		String[] rangeArr = rangeHeader.substring("bytes=".length()).split(",");
+		if (rangeArr.length > MAX_RANGE_CNT) {
+			return rangeList;
+		}
+		try {
+			for (String rangeStr : rangeArr) {
+				rangeStr = rangeStr.trim();
+				int dashIdx = rangeStr.indexOf('-');
+				if (dashIdx < 0) {
+					return new ArrayList<long[]>();
+				}
+				String startStr = rangeStr.substring(0, dashIdx).trim();
+				String endStr = rangeStr.substring(dashIdx + 1).trim();
+				long start;
+				long end;
+				if (startStr.isEmpty()) {
+					// 마지막 N bytes
+					long suffixLen = Long.parseLong(endStr);
+					if (suffixLen <= 0) {
+						continue;
+					}
+					start = Math.max(0, fileLen - suffixLen);
+					end = fileLen - 1;
+				} else {
+					start = Long.parseLong(startStr);
+					end = endStr.isEmpty() ? fileLen - 1 : Long.parseLong(endStr);
+					if (start < 0 || end < start) {
+						return new ArrayList<long[]>();
+					}
+					if (start >= fileLen) {
+						continue;
+					}
+					end = Math.min(end, fileLen - 1);
+				}
+				rangeList.add(new long[] {start, end});
+			}
+		} catch (NumberFormatException e) {
+			return new ArrayList<long[]>();
+		}
+		return rangeList.isEmpty() ? null : rangeList;
+	}
+	
+	/**
+	 * <p>컨테이너(Tomcat)가 sendfile을 지원하면 파일 구간 전송을 컨테이너에 맡긴다.</p>
+	 * <p>응답 본문을 쓰지 않고 커널이 파일을 소켓으로 직접 보내므로(zero-copy) 작은 파일은 제외한다.</p>
+	 * 
+	 * @param request  (HttpServletRequest 객체)
+	 * @param file     (전송할 파일)
+	 * @param start    (시작 위치)
+	 * @param length   (전송할 크기)
+	 * @return boolean (sendfile 사용 여부)
+	 * @throws IOException
+	 */
+	private static boolean setSendfile(HttpServletRequest request, File file, long start, long length) throws IOException {
+		if (length < SENDFILE_MIN_SIZE || !Boolean.TRUE.equals(request.getAttribute("org.apache.tomcat.sendfile.support"))) {
+			return false;
+		}
+		request.setAttribute("org.apache.tomcat.sendfile.filename", file.getCanonicalPath());
+		request.setAttribute("org.apache.tomcat.sendfile.start", Long.valueOf(start));
+		request.setAttribute("org.apache.tomcat.sendfile.end", Long.valueOf(start + length));
+		return true;
+	}
+	
+	/**
+	 * <p>파일의 해당 구간을 출력 스트림으로 복사한다.</p>
+	 * <p>서블릿 출력 스트림은 소켓 채널이 아니므로 transferTo 를 써도 내부에서 버퍼 복사가 일어난다.
+	 * 쓰레드별로 재사용하는 버퍼로 복사하며, 커널 직접 전송(zero-copy)은 컨테이너 sendfile(setSendfile)만 사용한다.</p>
+	 * <p>대용량 파일은 FLUSH_SIZE 마다 flush 해서 블로킹 쓰기로 사용자 수신 속도에 맞춰 전송한다.</p>
+	 * 
+	 * @param channel (파일 채널)
+	 * @param os      (출력 스트림)
+	 * @param start   (시작 위치)
+	 * @param length  (복사할 크기)
+	 * @throws IOException
+	 */
+	private static void copy(FileChannel channel, OutputStream os, long start, long length) throws IOException {
+		byte[] b = COPY_BUFFER.get();
+		ByteBuffer buffer = ByteBuffer.wrap(b);
+		long position = start;
+		long end = start + length;
+		long flushPosition = start + FLUSH_SIZE;
+		while (position < end) {
+			buffer.clear();
+			if (end - position < b.length) {
+				buffer.limit((int) (end - position));
+			}
+			int len = channel.read(buffer, position);
+			if (len == -1) {
+				break;
+			}
+			os.write(b, 0, len);
+			position += len;
+			if (position >= flushPosition) {
+				os.flush();
+				flushPosition = position + FLUSH_SIZE;
+			}
+		}
+	}
+	
+	/**
+	 * <p>Content-Length 헤더를 지정한다. 2GB를 넘는 크기는 int 로 넘기면 잘리므로 헤더 값으로 직접 지정한다.</p>
+	 * 
+	 * <pre>
+	 * FileDownload.setContentLength(response, 1000)       = setContentLength(1000)
+	 * FileDownload.setContentLength(response, 2147483647) = setContentLength(2147483647)
+	 * FileDownload.setContentLength(response, 3221225472) = setHeader("Content-Length", "3221225472")
+	 * </pre>
+	 * 
+	 * @param response      (HttpServletResponse 객체)
+	 * @param contentLength (본문 크기)
+	 */
+	public static void setContentLength(HttpServletResponse response, long contentLength) {
+		if (contentLength <= Integer.MAX_VALUE) {
+			response.setContentLength((int) contentLength);
+		} else {
+			response.setHeader("Content-Length", String.valueOf(contentLength));
+		}
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,219 @@
+/**
+ * ================================================================================================
+ * Copyright (c) 2003 JJang (Seon-joo, Jang)
+ * Licensed under the MIT license (http://www.opensource.org/licenses/MIT)
+ * 
+ * @Author      : Seon-joo, Jang (jeuse7@gmail.com)
+ * @File Name   : FileShard.java
+ * @Description : 업로드 파일 분산 디렉토리(Shard) 클래스.
+ *                한 디렉토리(/년도/월)에 파일이 너무 많이 쌓이지 않도록 저장 파일명의 MD5 해시 앞자리로
+ *                하위 디렉토리를 나눈다. (global.properties file.shard.depth, 0 이면 사용안함)
+ *                예) depth 2 : /2023/09/20230907133700123.pdf -> /2023/09/7c/33/20230907133700123.pdf
+ *                분산 경로는 저장 파일명으로 계산하므로 DB의 파일정보(savePath)에는 저장하지 않으며
+ *                getFile 은 현재 단계 위치에 없으면 다른 단계(0 ~ 4) 위치를 찾으므로 단계를 바꾸기 전 파일도 그대로 사용한다.
+ *                파일 경로만으로는 분산 디렉토리와 같은 이름의 저장 경로(예: /2023/09)를 구분할 수 없으므로
+ *                migrate 는 DB의 파일정보(저장 경로, 저장 파일명) 단위로 현재 단계 위치로 옮긴다. (ShardMigrator)
+ * @Version     : 3.0.0
+ * ================================================================================================
+ */
+package kr.co.akis.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class FileShard {
+	
+	private static final Logger logger = LoggerFactory.getLogger(FileShard.class);
+	
+	/** 최대 분산 디렉토리 단계 수 */
+	public static final int MAX_DEPTH = 4;
+	
+	/** 분산 디렉토리 단계 수 (단계마다 해시 2자리, 최대 4단계) */
+	public static final int SHARD_DEPTH = Math.max(0, Math.min(MAX_DEPTH, Const.properties.getInt("file.shard.depth", 0)));
+	
+	/** 업로드 후처리 결과 파일 확장자 (파일 옆에 두므로 원본 파일명으로 분산 경로를 계산한다.) */
+	public static final String STATUS_EXT = ".stage";
+	
+	/** 감염 파일 확장자 (바이러스 검사에서 감염된 파일의 이름을 바꿀 때 붙인다.) */
+	public static final String INFECTED_EXT = ".infected";
+	
+	/** 파일 옆에 두는 부속 파일 확장자 (원본 파일명으로 분산 경로를 계산한다.) */
+	private static final String[] SIDECAR_EXTS = {STATUS_EXT, INFECTED_EXT};
+	
+	/** 분산 디렉토리를 사용하지 않는 서브경로 (자체 구조를 가진 저장소, 작업 파일) */
+	private static final String[] EXCLUDE_PATHS = {FileDedupStore.STORE_PATH, ChunkUpload.CHUNK_PATH, "/excel", "/temp", "/pipeline", ImageThumbnail.THUMB_PATH, "/quarantine"};
+	
+	/**
+	 * <p>분산 디렉토리 사용 여부를 리턴한다.</p>
+	 * 
+	 * @return boolean (사용 여부)
+	 */
+	public static boolean isEnabled() {
+		return SHARD_DEPTH > 0;
+	}
+	
+	/**
+	 * <p>저장 파일명의 분산 서브경로를 리턴한다. 사용하지 않으면 빈 문자를 리턴한다.</p>
+	 * 
+	 * <pre>
+	 * FileShard.getShardPath("20230907133700123.pdf") = "/7c/33" (depth 2)
+	 * FileShard.getShardPath("20230907133700123.pdf") = ""       (depth 0)
+	 * </pre>
+	 * 
+	 * @param saveName (저장 파일명)
+	 * @return String  (분산 서브경로)
+	 */
+	public static String getShardPath(String saveName) {
+		return getShardPaths(saveName)[SHARD_DEPTH];
+	}
+	
+	/**
+	 * <p>저장 파일명의 단계별(0 ~ MAX_DEPTH) 분산 서브경로 배열을 리턴한다.</p>
+	 * 
+	 * <pre>
+	 * FileShard.getShardPaths("20230907133700123.pdf") = {"", "/7c", "/7c/33", "/7c/33/59", "/7c/33/59/4a"}
+	 * </pre>
+	 * 
+	 * @param saveName  (저장 파일명)
+	 * @return String[] (단계별 분산 서브경로)
+	 */
+	public static String[] getShardPaths(String saveName) {
+		String[] shardPaths = new String[MAX_DEPTH + 1];
+		shardPaths[0] = "";
+		if (StringUtil.isBlank(saveName)) {
+			for (int i = 1; i <= MAX_DEPTH; i++) {
+				shardPaths[i] = "";
+			}
+			return shardPaths;
+		}
+		try {
+			String hash = FileDedupStore.toHex(MessageDigest.getInstance("MD5").digest(saveName.getBytes("UTF-8")));
+			for (int i = 1; i <= MAX_DEPTH; i++) {
+				shardPaths[i] = shardPaths[i - 1] + "/" + hash.substring((i - 1) * 2, i * 2);
+			}
+			return shardPaths;
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	/**
+	 * <p>저장 경로와 파일명으로 실제 파일을 리턴한다.</p>
+	 * <p>현재 단계 위치에 파일이 없으면 다른 단계(0 ~ MAX_DEPTH) 위치를 찾아서 있으면 그 파일을 리턴한다.
+	 * 새로 저장할 파일은 현재 단계 위치의 파일이 리턴되므로 상위 디렉토리를 만든 후 사용한다.</p>
+	 * 
+	 * @param folderPath (저장 경로 - 전체 경로)
+	 * @param saveName   (저장 파일명)
+	 * @return File      (파일 객체)
+	 */
+	public static File getFile(String folderPath, String saveName) {
+		String[] shardPaths = getShardPaths(saveName);
+		File shardFile = new File(folderPath + shardPaths[SHARD_DEPTH], saveName);
+		if (shardFile.exists()) {
+			return shardFile;
+		}
+		// file.shard.depth 를 바꾸기 전 단계로 저장된 파일
+		for (int depth = 0; depth <= MAX_DEPTH; depth++) {
+			if (depth != SHARD_DEPTH) {
+				File file = new File(folderPath + shardPaths[depth], saveName);
+				if (file.isFile()) {
+					return file;
+				}
+			}
+		}
+		return shardFile;
+	}
+	
+	/**
+	 * <p>저장 경로와 파일명의 파일(부속 파일 포함)을 현재 단계 위치로 옮긴다.</p>
+	 * <p>이미 현재 단계 위치에 있거나 파일이 없으면 옮기지 않는다. 옮긴 후 비어있는 이전 분산 디렉토리는 삭제한다.</p>
+	 * 
+	 * <pre>
+	 * FileShard.migrate("/upload/bbs/2023/09", "20230907133700123.pdf", false) = true  (/upload/bbs/2023/09/7c/33/20230907133700123.pdf 로 이동, depth 2)
+	 * FileShard.migrate("/upload/bbs/2023/09", "20230907133700123.pdf", false) = false (이미 이동)
+	 * </pre>
+	 * 
+	 * @param folderPath (저장 경로 - 전체 경로)
+	 * @param saveName   (저장 파일명)
+	 * @param isDryRun   (true 이면 옮기지 않고 옮길 대상인지만 리턴한다.)
+	 * @return boolean   (옮긴 또는 옮길 파일 여부)
+	 * @throws IOException
+	 */
+	public static boolean migrate(String folderPath, String saveName, boolean isDryRun) throws IOException {
+		File file = getFile(folderPath, saveName);
+		File target = new File(folderPath + getShardPath(saveName), saveName);
+		if (!file.isFile() || file.equals(target)) {
+			return false;
+		}
+		if (isDryRun) {
+			return true;
+		}
+		Files.createDirectories(target.getParentFile().toPath());
+		Files.move(file.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+		for (String ext : SIDECAR_EXTS) {
+			Path sidecar = new File(file.getPath() + ext).toPath();
+			if (Files.isRegularFile(sidecar)) {
+				Files.move(sidecar, new File(target.getPath() + ext).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+		}
+		// 비어있는 이전 분산 디렉토리 삭제 (비어있지 않으면 삭제되지 않는다.)
+		File baseFolder = new File(folderPath);
+		for (File dir = file.getParentFile(); dir != null && !dir.equals(baseFolder) && !dir.equals(target.getParentFile()); dir = dir.getParentFile()) {
+			if (!dir.delete()) {
+				break;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * <p>부속 파일(저장파일명.stage, 저장파일명.infected)이면 원본 저장 파일명을 리턴한다.</p>
+	 * 
+	 * <pre>
+	 * FileShard.getBaseName("20230907133700123.pdf.stage")    = "20230907133700123.pdf"
+	 * FileShard.getBaseName("20230907133700123.pdf.infected") = "20230907133700123.pdf"
+	 * FileShard.getBaseName("20230907133700123.pdf")          = "20230907133700123.pdf"
+	 * </pre>
+	 * 
+	 * @param fileName (파일명)
+	 * @return String  (원본 저장 파일명)
+	 */
+	public static String getBaseName(String fileName) {
+		for (String ext : SIDECAR_EXTS) {
+			if (fileName.endsWith(ext) && fileName.length() > ext.length()) {
+				return fileName.substring(0, fileName.length() - ext.length());
+			}
+		}
+		return fileName;
+	}
+	
+	/**
+	 * <p>업로드 경로 아래 자체 구조를 가진 저장소, 작업 파일 경로인지 체크한다. (업로드 파일 정리에서 제외)</p>
+	 * 
+	 * <pre>
+	 * FileShard.isExcludePath(UPLOAD_PATH + "/thumb") = true
+	 * FileShard.isExcludePath(UPLOAD_PATH + "/bbs")   = false
+	 * </pre>
+	 * 
+	 * @param dir      (디렉토리 경로)
+	 * @return boolean (제외 여부)
+	 */
+	public static boolean isExcludePath(Path dir) {
+		String dirPath = FileUtil.cleanPath(dir.toString(), "/");
+		String uploadPath = FileUtil.cleanPath(Const.UPLOAD_PATH, "/");
+		for (String excludePath : EXCLUDE_PATHS) {
+			if (dirPath.equals(uploadPath + excludePath)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+}
@@ -0,0 +1,165 @@
+/**
+ * ================================================================================================
+ * Copyright (c) 2003 JJang (Seon-joo, Jang)
+ * Licensed under the MIT license (http://www.opensource.org/licenses/MIT)
+ * 
+ * @Author      : Seon-joo, Jang (jeuse7@gmail.com)
+ * @File Name   : FileStreamUpload.java
+ * @Description : 스트리밍 multipart 업로드 클래스.
+ *                MultipartResolver 는 maxInMemorySize 보다 큰 파일을 임시경로에 쓰고 FileUpload.upload 에서 다시
+ *                저장 위치로 쓰므로 같은 내용을 디스크에 두번 쓴다. 이 클래스는 요청 본문을 직접 해석하면서
+ *                파일 내용을 바로 저장 위치에 쓰고 크기 검사와 내용 해시(SHA-256) 계산을 같이 처리한다.
+ *                사용할 URL은 StreamingMultipartResolver 의 streamingUrls 에 등록해야 한다.
+ * @Version     : 3.0.0
+ * ================================================================================================
+ */
+package kr.co.akis.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.apache.commons.fileupload.FileItemIterator;
+import org.apache.commons.fileupload.FileItemStream;
+import org.apache.commons.fileupload.FileUploadBase;
+import org.apache.commons.fileupload.servlet.ServletFileUpload;
+import org.apache.commons.fileupload.util.Streams;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class FileStreamUpload {
+	
+	private static final Logger logger = LoggerFactory.getLogger(FileStreamUpload.class);
+	
+	/** 요청 전체 최대 크기 (multipartResolver maxUploadSize 와 같음) */
+	public static final long MAX_UPLOAD_SIZE = 1048576000L;
+	
+	/** 파일 쓰기 버퍼 크기 */
+	private static final int BUFFER_SIZE = 64 * 1024;
+	
+	/**
+	 * <p>multipart 요청의 파일을 바로 저장 위치에 쓰고 저장한 파일정보 리스트를 리턴한다.</p>
+	 * <p>파일 외 입력값은 paramMap 에 담기며 fileSummary 입력값은 순서대로 각 파일의 요약 내용이 된다.</p>
+	 * 
+	 * @param request               (HttpServletRequest - StreamingMultipartResolver 에서 해석하지 않은 요청)
+	 * @param savePath              (저장할 파일 서브경로, null 이면 /년도/월)
+	 * @param maxFileSize           (파일 하나의 최대 크기)
+	 * @param paramMap              (파일 외 입력값을 담을 Map, null 이면 담지 않음)
+	 * @return {@literal List<Map>} (저장한 파일정보 리스트, 크기 초과 또는 오류시 저장한 파일을 모두 삭제하고 null)
+	 */
+	public static List<Map<String, Object>> upload(HttpServletRequest request, String savePath, long maxFileSize, Map<String, List<String>> paramMap) {
+		if (!ServletFileUpload.isMultipartContent(request)) {
+			return null;
+		}
+		List<Map<String, Object>> uploadList = new ArrayList<Map<String, Object>>();
+		List<String> fileSummaryList = new ArrayList<String>();
+		try {
+			ServletFileUpload upload = new ServletFileUpload();
+			upload.setHeaderEncoding(Const.ENCODING_TYPE);
+			upload.setSizeMax(MAX_UPLOAD_SIZE);
+			savePath = FileUpload.getSavePath(savePath, true);
+			String saveFolderPath = FileUtil.cleanPath(Const.UPLOAD_PATH + savePath);
+			FileItemIterator iter = upload.getItemIterator(request);
+			while (iter.hasNext()) {
+				FileItemStream item = iter.next();
+				InputStream is = item.openStream();
+				try {
+					if (item.isFormField()) {
+						String value = Streams.asString(is, Const.ENCODING_TYPE);
+						if ("fileSummary".equals(item.getFieldName())) {
+							fileSummaryList.add(value);
+						}
+						if (paramMap != null) {
+							if (!paramMap.containsKey(item.getFieldName())) {
+								paramMap.put(item.getFieldName(), new ArrayList<String>());
+							}
+							paramMap.get(item.getFieldName()).add(value);
+						}
+					} else if (!StringUtil.isBlank(item.getName())) {
+						String orgnName = FileUtil.getFileName(item.getName());
+						String saveName = FileUpload.getSaveName(null, orgnName, true);
+						File saveFile = FileShard.getFile(saveFolderPath, saveName);
+						saveFile.getParentFile().mkdirs();
+						// 첨부파일 정보 생성 (저장 실패시 삭제할 수 있도록 먼저 등록)
+						Map<String, Object> fileMap = new HashMap<String, Object>();
+						fileMap.put("fileDiv", item.getFieldName().replaceAll("File$", ""));
+						fileMap.put("savePath", savePath);
+						fileMap.put("saveName", saveName);
+						fileMap.put("orgnName", orgnName);
+						fileMap.put("fileExt", FileUtil.getFileExt(orgnName));
+						fileMap.put("contentType", item.getContentType());
+						uploadList.add(fileMap);
+						// 첨부파일 저장
+						long fileSize = write(is, saveFile, maxFileSize, fileMap);
+						if (fileSize < 0) {
+							logger.warn("첨부파일 크기 초과 [파일명 : " + orgnName + ", 최대크기 : " + maxFileSize + "]");
+							delete(uploadList);
+							return null;
+						}
+						fileMap.put("fileSize", fileSize);
+					}
+				} finally {
+					is.close();
+				}
+			}
+		} catch (Exception e) {
+			// 요청 길이를 모르는(chunked) 요청은 읽는 중에 크기를 넘으므로 FileUploadIOException 으로 감싸서 발생한다.
+			Throwable cause = e instanceof FileUploadBase.FileUploadIOException ? e.getCause() : e;
+			if (cause instanceof FileUploadBase.SizeLimitExceededException) {
+				FileUploadBase.SizeLimitExceededException se = (FileUploadBase.SizeLimitExceededException) cause;
+				logger.warn("업로드 요청 크기 초과 [요청크기 : " + se.getActualSize() + ", 최대크기 : " + se.getPermittedSize() + "]");
+			} else {
+				logger.error(ExceptionUtil.addMessage(e, "첨부파일 스트리밍 업로드 실패!!"));
+			}
+			delete(uploadList);
+			return null;
+		}
+		for (int i = 0; i < uploadList.size(); i++) {
+			uploadList.get(i).put("fileSummary", StringUtil.clean(fileSummaryList.size() > i ? fileSummaryList.get(i) : null));
+		}
+		return uploadList;
+	}
+	
+	/**
+	 * <p>스트림을 파일에 쓰면서 내용 해시를 계산하고 쓴 크기를 리턴한다. 최대 크기를 넘으면 -1을 리턴한다.</p>
+	 */
+	private static long write(InputStream is, File saveFile, long maxFileSize, Map<String, Object> fileMap) throws Exception {
+		MessageDigest md = MessageDigest.getInstance(FileDedupStore.HASH_ALGORITHM);
+		OutputStream os = new FileOutputStream(saveFile);
+		long fileSize = 0;
+		try {
+			byte[] b = new byte[BUFFER_SIZE];
+			int len = 0;
+			while ((len = is.read(b)) != -1) {
+				fileSize += len;
+				if (fileSize > maxFileSize) {
+					return -1;
+				}
+				md.update(b, 0, len);
+				os.write(b, 0, len);
+			}
+		} finally {
+			os.close();
+		}
+		fileMap.put("fileHash", FileDedupStore.toHex(md.digest()));
+		return fileSize;
+	}
+	
+	/**
+	 * <p>업로드 실패시 이미 저장한 파일을 삭제한다.</p>
+	 */
+	private static void delete(List<Map<String, Object>> uploadList) {
+		for (Map<String, Object> fileMap : uploadList) {
+			FileShard.getFile(FileUtil.cleanPath(Const.UPLOAD_PATH + fileMap.get("savePath")), (String) fileMap.get("saveName")).delete();
+		}
+	}
+	
+}
@@ -0,0 +1,404 @@
+/**
+ * ================================================================================================
+ * Copyright (c) 2003 JJang (Seon-joo, Jang)
+ * Licensed under the MIT license (http://www.opensource.org/licenses/MIT)
+ * 
+ * @Author      : Seon-joo, Jang (jeuse7@gmail.com)
+ * @File Name   : FileTree.java
+ * @Description : 디렉토리 전체 삭제, 복사, 이동, 크기 계산 클래스.
+ *                보관기간이 지난 업로드 디렉토리(/yyyy/MM) 정리처럼 파일이 많은 작업을 ForkJoinPool 로 나눠서 처리한다.
+ *                FORK_DEPTH 까지의 디렉토리는 각각 별도 작업으로 나누고, 그 아래는 Files.walkFileTree 로 처리한다.
+ *                진행상황(Progress)을 알려주며 실제로 처리하지 않고 대상만 세는 dry run 을 지원한다.
+ *                결과 Map : fileCnt(파일 수), dirCnt(디렉토리 수), byteSize(파일 크기 합계), failCnt(실패 수), elapsed(처리시간 ms)
+ * @Version     : 3.0.0
+ * ================================================================================================
+ */
+package kr.co.akis.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class FileTree {
+	
+	private static final Logger logger = LoggerFactory.getLogger(FileTree.class);
+	
+	/** 별도 작업으로 나누는 디렉토리 깊이 (업로드 경로 기준 /yyyy/MM/분산디렉토리 까지) */
+	private static final int FORK_DEPTH = 4;
+	
+	/** 진행상황을 알려주는 파일 수 간격 */
+	private static final long PROGRESS_STEP = 1000;
+	
+	/** 작업 쓰레드 수 (파일 I/O 대기가 많으므로 CPU 수보다 크게 잡을 수 있다.) */
+	private static final int PARALLELISM = Const.properties.getInt("file.tree.parallelism", Runtime.getRuntime().availableProcessors());
+	
+	/** 작업 쓰레드 풀 (parallel stream 등이 사용하는 commonPool 과 분리한다.) */
+	private static final ForkJoinPool POOL = new ForkJoinPool(Math.max(1, PARALLELISM));
+	
+	private static final int SIZE = 0;
+	
+	private static final int DELETE = 1;
+	
+	private static final int COPY = 2;
+	
+	/**
+	 * <p>진행상황을 받는 인터페이스. 여러 쓰레드에서 호출될 수 있다.</p>
+	 */
+	public interface Progress {
+		
+		/**
+		 * <p>PROGRESS_STEP 개의 파일을 처리할 때마다, 그리고 작업이 끝났을 때 호출된다.</p>
+		 * 
+		 * @param fileCnt  (지금까지 처리한 파일 수)
+		 * @param byteSize (지금까지 처리한 파일 크기 합계)
+		 * @param failCnt  (지금까지 실패한 수)
+		 */
+		void progress(long fileCnt, long byteSize, long failCnt);
+		
+	}
+	
+	/**
+	 * <p>디렉토리 아래 모든 파일 크기의 합계를 리턴한다. 파일이면 파일 크기를 리턴한다.</p>
+	 * 
+	 * <pre>
+	 * FileTree.sizeOf(null)           = 0
+	 * FileTree.sizeOf(!file.exists()) = 0
+	 * FileTree.sizeOf(File)           = 파일 크기 합계
+	 * </pre>
+	 * 
+	 * @param file  (파일 또는 디렉토리 객체)
+	 * @return long (파일 크기 합계)
+	 */
+	public static long sizeOf(File file) {
+		return (Long) run(SIZE, file, null, true, null).get("byteSize");
+	}
+	
+	/**
+	 * <p>디렉토리와 그 아래 모든 파일, 디렉토리를 삭제한다. 파일이면 파일만 삭제한다.</p>
+	 * 
+	 * <pre>
+	 * FileTree.delete(null, *, *)           = null
+	 * FileTree.delete(!file.exists(), *, *) = null
+	 * FileTree.delete(File, true, *)        = 삭제할 대상 수 (삭제하지 않음)
+	 * FileTree.delete(File, false, *)       = 삭제 결과
+	 * </pre>
+	 * 
+	 * @param file     (삭제할 파일 또는 디렉토리 객체)
+	 * @param isDryRun (삭제하지 않고 대상만 셀지 여부)
+	 * @param progress (진행상황 객체, 없으면 null)
+	 * @return Map     (처리 결과)
+	 */
+	public static Map<String, Object> delete(File file, boolean isDryRun, Progress progress) {
+		return run(DELETE, file, null, isDryRun, progress);
+	}
+	
+	/**
+	 * <p>디렉토리 전체를 복사한다. 같은 이름의 파일이 있으면 덮어쓴다.</p>
+	 * 
+	 * <pre>
+	 * FileTree.copy(null, *, *, *)           = null
+	 * FileTree.copy(!from.exists(), *, *, *) = null
+	 * FileTree.copy("D:/a", "E:/a", *, *)    = 복사 결과 (D:/a/x.txt → E:/a/x.txt)
+	 * </pre>
+	 * 
+	 * @param from     (복사할 파일 또는 디렉토리 객체)
+	 * @param to       (복사될 파일 또는 디렉토리 객체)
+	 * @param isDryRun (복사하지 않고 대상만 셀지 여부)
+	 * @param progress (진행상황 객체, 없으면 null)
+	 * @return Map     (처리 결과)
+	 */
+	public static Map<String, Object> copy(File from, File to, boolean isDryRun, Progress progress) {
+		if (to == null || (from != null && isSubPath(from, to))) {
+			logger.warn("디렉토리 복사 대상이 잘못되었습니다. [복사할경로 : " + from + ", 복사될경로 : " + to + "]");
+			return null;
+		}
+		return run(COPY, from, to, isDryRun, progress);
+	}
+	
+	/**
+	 * <p>디렉토리 전체를 이동한다.</p>
+	 * <p>같은 파일시스템이고 대상이 없으면 이름만 바꾸며, 아니면 복사한 후 복사가 모두 성공했을 때만 원본을 삭제한다.</p>
+	 * 
+	 * <pre>
+	 * FileTree.move(null, *, *, *)           = null
+	 * FileTree.move(!from.exists(), *, *, *) = null
+	 * FileTree.move("D:/a", "E:/a", *, *)    = 이동 결과
+	 * </pre>
+	 * 
+	 * @param from     (이동할 파일 또는 디렉토리 객체)
+	 * @param to       (이동될 파일 또는 디렉토리 객체)
+	 * @param isDryRun (이동하지 않고 대상만 셀지 여부)
+	 * @param progress (진행상황 객체, 없으면 null)
+	 * @return Map     (처리 결과)
+	 */
+	public static Map<String, Object> move(File from, File to, boolean isDryRun, Progress progress) {
+		if (to == null || (from != null && isSubPath(from, to))) {
+			logger.warn("디렉토리 이동 대상이 잘못되었습니다. [이동할경로 : " + from + ", 이동될경로 : " + to + "]");
+			return null;
+		}
+		if (!isDryRun && from != null && from.exists() && !to.exists()) {
+			long startTime = System.currentTimeMillis();
+			try {
+				// 이름 변경은 파일 수와 관계없이 바로 끝나므로 먼저 시도한다. 이 경우 파일 수는 세지 않는다.
+				if (to.getParentFile() != null) {
+					to.getParentFile().mkdirs();
+				}
+				Files.move(from.toPath(), to.toPath(), StandardCopyOption.ATOMIC_MOVE);
+				Map<String, Object> resultMap = getResultMap(0, 0, 0, 0, startTime);
+				resultMap.put("isRenamed", true);
+				return resultMap;
+			} catch (IOException e) {
+				logger.debug("이름 변경으로 이동할 수 없어서 복사 후 삭제합니다. [사유 : " + e.toString() + "]");
+			}
+		}
+		Map<String, Object> resultMap = copy(from, to, isDryRun, progress);
+		if (resultMap != null && !isDryRun) {
+			if ((Long) resultMap.get("failCnt") == 0) {
+				Map<String, Object> deleteMap = delete(from, false, null);
+				resultMap.put("failCnt", (Long) deleteMap.get("failCnt"));
+			} else {
+				logger.warn("복사 실패가 있어서 원본을 삭제하지 않습니다. [이동할경로 : " + from + ", 실패 : " + resultMap.get("failCnt") + "]");
+			}
+		}
+		return resultMap;
+	}
+	
+	private static Map<String, Object> run(int mode, File from, File to, boolean isDryRun, Progress progress) {
+		if (from == null || !from.exists()) {
+			logger.warn("파일 또는 디렉토리가 존재하지 않습니다. [경로 : " + (from == null ? "null" : from.getPath()) + "]");
+			return mode == SIZE ? getResultMap(0, 0, 0, 0, System.currentTimeMillis()) : null;
+		}
+		long startTime = System.currentTimeMillis();
+		Operation op = new Operation(mode, isDryRun, progress);
+		Path source = from.toPath();
+		Path target = to == null ? null : to.toPath();
+		try {
+			BasicFileAttributes attrs = Files.readAttributes(source, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+			if (attrs.isDirectory()) {
+				POOL.invoke(new TreeTask(op, source, target, 0));
+			} else {
+				if (target != null && target.getParent() != null && !isDryRun) {
+					Files.createDirectories(target.getParent());
+				}
+				op.visitFile(source, target, attrs);
+			}
+		} catch (Exception e) {
+			op.fail(source, e);
+		}
+		if (progress != null) {
+			progress.progress(op.fileCnt.get(), op.byteSize.get(), op.failCnt.get());
+		}
+		Map<String, Object> resultMap = getResultMap(op.fileCnt.get(), op.dirCnt.get(), op.byteSize.get(), op.failCnt.get(), startTime);
+		resultMap.put("isDryRun", isDryRun);
+		if (mode != SIZE) {
+			logger.info((mode == DELETE ? "디렉토리 삭제" : "디렉토리 복사") + (isDryRun ? "(dry run)" : "") + " [경로 : " + source + ", 결과 : " + resultMap + "]");
+		}
+		return resultMap;
+	}
+	
+	private static Map<String, Object> getResultMap(long fileCnt, long dirCnt, long byteSize, long failCnt, long startTime) {
+		Map<String, Object> resultMap = new HashMap<String, Object>();
+		resultMap.put("fileCnt", fileCnt);
+		resultMap.put("dirCnt", dirCnt);
+		resultMap.put("byteSize", byteSize);
+		resultMap.put("failCnt", failCnt);
+		resultMap.put("elapsed", System.currentTimeMillis() - startTime);
+		return resultMap;
+	}
+	
+	/**
+	 * <p>to 가 from 과 같거나 from 아래에 있는지 체크한다. (자기 자신 아래로 복사하면 끝나지 않는다.)</p>
+	 */
+	private static boolean isSubPath(File from, File to) {
+		return to.toPath().toAbsolutePath().normalize().startsWith(from.toPath().toAbsolutePath().normalize());
+	}
+	
+	/**
+	 * <p>디렉토리 하나를 처리하는 작업. FORK_DEPTH 보다 얕으면 하위 디렉토리를 별도 작업으로 나눈다.</p>
+	 */
+	private static class TreeTask extends RecursiveAction {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final Operation op;
+		
+		private final Path dir;
+		
+		private final Path target;
+		
+		private final int depth;
+		
+		TreeTask(Operation op, Path dir, Path target, int depth) {
+			this.op = op;
+			this.dir = dir;
+			this.target = target;
+			this.depth = depth;
+		}
+		
+		@Override
+		protected void compute() {
+			if (depth >= FORK_DEPTH) {
+				walk();
+				return;
+			}
+			List<TreeTask> taskList = new ArrayList<TreeTask>();
+			try {
+				op.preVisitDirectory(dir, target);
+				DirectoryStream<Path> ds = Files.newDirectoryStream(dir);
+				try {
+					for (Path path : ds) {
+						Path subTarget = target == null ? null : target.resolve(path.getFileName().toString());
+						BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+						if (attrs.isDirectory()) {
+							taskList.add(new TreeTask(op, path, subTarget, depth + 1));
+						} else {
+							op.visitFile(path, subTarget, attrs);
+						}
+					}
+				} finally {
+					ds.close();
+				}
+			} catch (Exception e) {
+				op.fail(dir, e);
+				return;
+			}
+			invokeAll(taskList);
+			op.postVisitDirectory(dir);
+		}
+		
+		/**
+		 * <p>하위 디렉토리 전체를 현재 쓰레드에서 Files.walkFileTree 로 처리한다.</p>
+		 */
+		private void walk() {
+			try {
+				Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+					@Override
+					public FileVisitResult preVisitDirectory(Path path, BasicFileAttributes attrs) throws IOException {
+						op.preVisitDirectory(path, resolve(path));
+						return FileVisitResult.CONTINUE;
+					}
+					
+					@Override
+					public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) {
+						op.visitFile(path, resolve(path), attrs);
+						return FileVisitResult.CONTINUE;
+					}
+					
+					@Override
+					public FileVisitResult visitFileFailed(Path path, IOException e) {
+						op.fail(path, e);
+						return FileVisitResult.CONTINUE;
+					}
+					
+					@Override
+					public FileVisitResult postVisitDirectory(Path path, IOException e) {
+						if (e != null) {
+							op.fail(path, e);
+						} else {
+							op.postVisitDirectory(path);
+						}
+						return FileVisitResult.CONTINUE;
+					}
+				});
+			} catch (IOException e) {
+				op.fail(dir, e);
+			}
+		}
+		
+		private Path resolve(Path path) {
+			return target == null ? null : target.resolve(dir.relativize(path).toString());
+		}
+		
+	}
+	
+	/**
+	 * <p>파일, 디렉토리 하나에 대한 처리와 결과 집계. 여러 쓰레드에서 함께 사용한다.</p>
+	 */
+	private static class Operation {
+		
+		private final int mode;
+		
+		private final boolean isDryRun;
+		
+		private final Progress progress;
+		
+		private final AtomicLong fileCnt = new AtomicLong();
+		
+		private final AtomicLong dirCnt = new AtomicLong();
+		
+		private final AtomicLong byteSize = new AtomicLong();
+		
+		private final AtomicLong failCnt = new AtomicLong();
+		
+		Operation(int mode, boolean isDryRun, Progress progress) {
+			this.mode = mode;
+			this.isDryRun = isDryRun;
+			this.progress = progress;
+		}
+		
+		void preVisitDirectory(Path dir, Path target) throws IOException {
+			if (mode == COPY && !isDryRun) {
+				try {
+					Files.createDirectories(target);
+				} catch (FileAlreadyExistsException e) {
+					throw new IOException("복사될 경로에 같은 이름의 파일이 있습니다. [경로 : " + target + "]", e);
+				}
+			}
+		}
+		
+		void visitFile(Path path, Path target, BasicFileAttributes attrs) {
+			try {
+				if (!isDryRun) {
+					if (mode == DELETE) {
+						Files.delete(path);
+					} else if (mode == COPY) {
+						Files.copy(path, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES, LinkOption.NOFOLLOW_LINKS);
+					}
+				}
+				byteSize.addAndGet(attrs.size());
+				long cnt = fileCnt.incrementAndGet();
+				if (progress != null && cnt % PROGRESS_STEP == 0) {
+					progress.progress(cnt, byteSize.get(), failCnt.get());
+				}
+			} catch (Exception e) {
+				fail(path, e);
+			}
+		}
+		
+		void postVisitDirectory(Path dir) {
+			try {
+				if (mode == DELETE && !isDryRun) {
+					Files.delete(dir);
+				}
+				dirCnt.incrementAndGet();
+			} catch (Exception e) {
+				fail(dir, e);
+			}
+		}
+		
+		void fail(Path path, Exception e) {
+			failCnt.incrementAndGet();
+			logger.warn("파일 처리 실패 [경로 : " + path + ", 사유 : " + e.toString() + "]");
+		}
+		
+	}
+	
+}
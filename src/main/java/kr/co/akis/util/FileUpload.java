@@ -113,6 +113,41 @@ public class FileUpload {
 		return uploadList;
 	}
 	
+	/**
+	 * <p>단일 파일을 중복제거 저장소(FileDedupStore)에 업로드한다.</p>
+	 * <p>같은 내용의 파일은 한번만 저장되며 파일정보에 내용 해시(fileHash)가 추가된다.
+	 * 저장한 파일은 여러 게시물이 공유하므로 삭제시 FileDedupStore.release 를 사용한다.</p>
+	 * 
+	 * @param file                            (MultipartFile 객체)
+	 * @param fileSummary                     (첨부파일 요약 내용)
+	 * @return {@literal Map<String, Object>} (저장한 파일정보)
+	 */
+	public static Map<String, Object> uploadDedup(MultipartFile file, String fileSummary) {
+		return FileDedupStore.store(file, fileSummary);
+	}
+	
+	/**
+	 * <p>다중 파일을 중복제거 저장소(FileDedupStore)에 업로드한다.</p>
+	 * 
+	 * @param fileList              (MultipartFile 객체 리스트)
+	 * @param fileSummaryList       (첨부파일 요약 내용 리스트)
+	 * @return {@literal List<Map>} (저장한 파일정보 리스트)
+	 */
+	public static List<Map<String, Object>> uploadDedup(List<MultipartFile> fileList, List<String> fileSummaryList) {
+		List<Map<String, Object>> uploadList = null;
+		if (fileList != null && fileList.size() > 0) {
+			uploadList = new ArrayList<Map<String, Object>>();
+			Map<String, Object> fileMap = null;
+			for (int i = 0; i < fileList.size(); i++) {
+				fileMap = FileDedupStore.store(fileList.get(i), (fileSummaryList != null && fileSummaryList.size() > i) ? fileSummaryList.get(i) : null);
+				if (fileMap != null && !fileMap.isEmpty()) {
+					uploadList.add(fileMap);
+				}
+			}
+		}
+		return uploadList;
+	}
+	
 	/**
 	 * <p>파일 업로드를 처리한다.</p>
 	 * 
@@ -129,26 +164,13 @@ public class FileUpload {
 		File saveFolder = null;
 		try {
 			if (file != null && !file.isEmpty()) {
-				Calendar calendar = Calendar.getInstance();
-				String datePath = "/" + calendar.get(Calendar.YEAR) + "/" + StringUtil.prefixZero(calendar.get(Calendar.MONTH) + 1, 2);
-				if (StringUtil.isBlank(savePath)) {
-					savePath = datePath;
-				} else {
-					if (isAddDatePath) {
-						savePath += datePath;
-					}
-				}
-				savePath = FileUtil.cleanPath(savePath, "/");
-				saveFolder = new File(FileUtil.cleanPath(Const.UPLOAD_PATH + savePath));
+				savePath = getSavePath(savePath, isAddDatePath);
+				saveName = getSaveName(saveName, file.getOriginalFilename(), isSaveWithExt);
+				// 첨부파일 저장 (분산 디렉토리 사용시 저장 파일명 해시 하위 경로)
+				File saveFile = FileShard.getFile(FileUtil.cleanPath(Const.UPLOAD_PATH + savePath), saveName);
+				saveFolder = saveFile.getParentFile();
 				saveFolder.mkdirs();
-				if (StringUtil.isBlank(saveName)) {
-					saveName = DateUtil.getTimeStamp() + NumberUtil.randomStr(1, 99999);
-				}
-				if (isSaveWithExt) {
-					saveName += "." + FileUtil.getFileExt(file.getOriginalFilename());
-				}
-				// 첨부파일 저장
-				file.transferTo(new File(saveFolder, saveName));
+				file.transferTo(saveFile);
 				// 첨부파일 정보 생성
 				fileMap = new HashMap<String, Object>();
 				fileMap.put("fileDiv", file.getName().replaceAll("File$", ""));
@@ -168,4 +190,42 @@ public class FileUpload {
 		return fileMap;
 	}
 	
+	/**
+	 * <p>저장할 파일 서브경로를 리턴한다. 서브경로가 없으면 /년도/월 을 사용한다.</p>
+	 * 
+	 * @param savePath      (저장할 파일 서브경로)
+	 * @param isAddDatePath (저장할 파일경로에 년도, 월 추가 여부)
+	 * @return String       (저장할 파일 서브경로)
+	 */
+	public static String getSavePath(String savePath, boolean isAddDatePath) {
+		Calendar calendar = Calendar.getInstance();
+		String datePath = "/" + calendar.get(Calendar.YEAR) + "/" + StringUtil.prefixZero(calendar.get(Calendar.MONTH) + 1, 2);
+		if (StringUtil.isBlank(savePath)) {
+			savePath = datePath;
+		} else {
+			if (isAddDatePath) {
+				savePath += datePath;
+			}
+		}
+		return FileUtil.cleanPath(savePath, "/");
+	}
+	
+	/**
+	 * <p>저장할 파일이름을 리턴한다. 파일이름이 없으면 타임스탬프 + 난수를 사용한다.</p>
+	 * 
+	 * @param saveName      (저장할 파일이름)
+	 * @param orgnName      (원본 파일이름)
+	 * @param isSaveWithExt (파일 저장시 파일확장자 포함 여부)
+	 * @return String       (저장할 파일이름)
+	 */
+	public static String getSaveName(String saveName, String orgnName, boolean isSaveWithExt) {
+		if (StringUtil.isBlank(saveName)) {
+			saveName = DateUtil.getTimeStamp() + NumberUtil.randomStr(1, 99999);
+		}
+		if (isSaveWithExt) {
+			saveName += "." + FileUtil.getFileExt(orgnName);
+		}
+		return saveName;
+	}
+	
 }
\ No newline at end of file
@@ -14,12 +14,25 @@
 package kr.co.akis.util;
 
 import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.net.URL;
 import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,6 +41,26 @@ public class FileUtil {
 	
 	private static final Logger logger = LoggerFactory.getLogger(FileUtil.class);
 	
+	/** 이 크기 이상인 파일은 줄 단위로 읽을 때 메모리 매핑을 사용한다. (bytes) */
+	private static final long MMAP_SIZE = Const.properties.getLong("file.read.mmapSize", 64) * 1024 * 1024;
+	
+	/**
+	 * <p>파일을 한 줄씩 처리하는 인터페이스 (FileUtil.readLines 에서 사용)</p>
+	 */
+	public interface LineHandler {
+		
+		/**
+		 * <p>한 줄을 처리한다.</p>
+		 * 
+		 * @param line     (줄 내용, 개행문자 제외)
+		 * @param lineNo   (줄 번호, 1부터 시작)
+		 * @return boolean (계속 읽을지 여부, false 면 읽기를 멈춤)
+		 * @throws Exception
+		 */
+		boolean handle(String line, long lineNo) throws Exception;
+		
+	}
+	
 	/**
 	 * <p>파일의 내용을 Application 기본 캐릭터셋 타입으로 읽어서 문자열로 리턴한다.</p>
 	 * 
@@ -136,7 +169,168 @@ public class FileUtil {
 	}
 	
 	/**
-	 * <p>해당 경로의 파일을 삭제한다.</p>
+	 * <p>파일을 한 줄씩 읽어서 LineHandler 로 넘긴다. 파일 전체를 메모리에 올리지 않는다.</p>
+	 * <p>file.read.mmapSize(MB) 이상인 파일은 메모리 매핑으로 읽는다.</p>
+	 * 
+	 * <pre>
+	 * FileUtil.readLines(null, *, *)           = -1
+	 * FileUtil.readLines(!file.exists(), *, *) = -1
+	 * FileUtil.readLines(File, *, handler)     = 처리한 줄 수
+	 * </pre>
+	 * 
+	 * @param file    (파일 객체)
+	 * @param charset (파일 캐릭터셋, 없으면 Application 기본 캐릭터셋)
+	 * @param handler (줄 처리 객체)
+	 * @return long   (처리한 줄 수, 실패하면 -1)
+	 */
+	public static long readLines(File file, String charset, LineHandler handler) {
+		return readLines(file, getDecoder(charset), handler);
+	}
+	
+	/**
+	 * <p>파일을 한 줄씩 읽어서 LineHandler 로 넘긴다. 잘못된 문자 처리 방식 등을 지정할 때 디코더를 직접 넘긴다.</p>
+	 * 
+	 * <pre>
+	 * FileUtil.readLines(File, StandardCharsets.UTF_8.newDecoder(), handler) = 처리한 줄 수 (잘못된 문자가 있으면 -1)
+	 * </pre>
+	 * 
+	 * @param file    (파일 객체)
+	 * @param decoder (캐릭터셋 디코더)
+	 * @param handler (줄 처리 객체)
+	 * @return long   (처리한 줄 수, 실패하면 -1)
+	 */
+	public static long readLines(File file, CharsetDecoder decoder, LineHandler handler) {
+		if (file != null && file.isFile()) {
+			LineReader reader = null;
+			long lineNo = 0;
+			try {
+				reader = openLineReader(file, decoder);
+				String line = null;
+				while ((line = reader.readLine()) != null) {
+					if (!handler.handle(line, ++lineNo)) {
+						break;
+					}
+				}
+				return lineNo;
+			} catch (Exception e) {
+				logger.error(ExceptionUtil.addMessage(e, "파일 읽기 실패!! [파일경로 : " + file.getPath() + ", 줄 번호 : " + lineNo + "]"));
+				return -1;
+			} finally {
+				if (reader != null) try { reader.close(); } catch (Exception e) {};
+			}
+		} else {
+			logger.warn("파일이 존재하지 않습니다. [파일경로 : " + (file == null ? "null" : file.getPath()) + "]");
+			return -1;
+		}
+	}
+	
+	/**
+	 * <p>파일의 줄 Stream 을 리턴한다. 사용 후 반드시 close 해야 한다. (try-with-resources)</p>
+	 * <p>file.read.mmapSize(MB) 이상인 파일은 메모리 매핑으로 읽는다. 읽기 오류는 UncheckedIOException 으로 발생한다.</p>
+	 * 
+	 * <pre>
+	 * FileUtil.lines(null, *)           = null
+	 * FileUtil.lines(!file.exists(), *) = null
+	 * FileUtil.lines(File, *)           = 줄 Stream
+	 * </pre>
+	 * 
+	 * @param file                       (파일 객체)
+	 * @param charset                    (파일 캐릭터셋, 없으면 Application 기본 캐릭터셋)
+	 * @return {@literal Stream<String>} (줄 Stream)
+	 */
+	public static Stream<String> lines(File file, String charset) {
+		if (file != null && file.isFile()) {
+			try {
+				final LineReader reader = openLineReader(file, getDecoder(charset));
+				Iterator<String> iterator = new Iterator<String>() {
+					private String next = null;
+					
+					@Override
+					public boolean hasNext() {
+						if (next == null) {
+							try {
+								next = reader.readLine();
+							} catch (IOException e) {
+								throw new UncheckedIOException(e);
+							}
+						}
+						return next != null;
+					}
+					
+					@Override
+					public String next() {
+						if (!hasNext()) {
+							throw new NoSuchElementException();
+						}
+						String line = next;
+						next = null;
+						return line;
+					}
+				};
+				return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(new Runnable() {
+					@Override
+					public void run() {
+						try { reader.close(); } catch (Exception e) {};
+					}
+				});
+			} catch (Exception e) {
+				logger.error(ExceptionUtil.addMessage(e, "파일 읽기 실패!! [파일경로 : " + file.getPath() + "]"));
+				return null;
+			}
+		} else {
+			logger.warn("파일이 존재하지 않습니다. [파일경로 : " + (file == null ? "null" : file.getPath()) + "]");
+			return null;
+		}
+	}
+	
+	/**
+	 * <p>캐릭터셋 디코더를 만든다. 잘못된 문자는 InputStreamReader 와 같이 대체문자로 바꾼다.</p>
+	 */
+	private static CharsetDecoder getDecoder(String charset) {
+		return Charset.forName(StringUtil.isBlank(charset) ? Const.ENCODING_TYPE : charset).newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+	}
+	
+	/**
+	 * <p>파일 크기와 캐릭터셋에 따라 메모리 매핑 또는 BufferedReader 로 줄을 읽는 객체를 만든다.</p>
+	 */
+	private static LineReader openLineReader(File file, CharsetDecoder decoder) throws IOException {
+		if (file.length() >= MMAP_SIZE && MappedLineReader.isSupported(decoder.charset())) {
+			final MappedLineReader reader = new MappedLineReader(file, decoder);
+			return new LineReader() {
+				@Override
+				public String readLine() throws IOException {
+					return reader.readLine();
+				}
+				
+				@Override
+				public void close() throws IOException {
+					reader.close();
+				}
+			};
+		}
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), decoder), 64 * 1024);
+		return new LineReader() {
+			@Override
+			public String readLine() throws IOException {
+				return reader.readLine();
+			}
+			
+			@Override
+			public void close() throws IOException {
+				reader.close();
+			}
+		};
+	}
+	
+	private interface LineReader extends Closeable {
+		
+		String readLine() throws IOException;
+		
+	}
+	
+	/**
+	 * <p>해당 경로의 파일을 삭제한다. 분산 디렉토리(FileShard)를 사용하면 분산 위치의 파일을 삭제한다.</p>
 	 * 
 	 * <pre>
 	 * FileUtil.delete(null, *)           = false
@@ -151,7 +345,7 @@ public class FileUtil {
 	 * @return boolean (파일삭제 성공여부)
 	 */
 	public static boolean delete(String filePath, String fileName) {
-		return delete(new File(StringUtil.clean(filePath), StringUtil.clean(fileName)));
+		return delete(FileShard.getFile(StringUtil.clean(filePath), StringUtil.clean(fileName)));
 	}
 	
 	/**
@@ -189,7 +383,7 @@ public class FileUtil {
 	
 	/**
 	 * <p>파일 또는 디렉토리를 삭제한다.</p>
-	 * <p>디렉토리일 경우 디렉토리에 있는 모든것을 포함해서 삭제할지 선택한다.</p>
+	 * <p>디렉토리일 경우 디렉토리에 있는 모든것을 포함해서 삭제할지 선택한다. (진행상황, dry run 은 FileTree.delete 사용)</p>
 	 * 
 	 * <pre>
 	 * FileUtil.delete(null, *)           = false
@@ -206,15 +400,9 @@ public class FileUtil {
 			if (file.isFile() || (file.isDirectory() && !isDeleteAll)) {
 				return file.delete();
 			} else {
-				File[] fileList = file.listFiles();
-				for (int i = 0; i < fileList.length; i++) {
-					if (fileList[i].isFile()) {
-						fileList[i].delete();
-					} else {
-						delete(fileList[i], true);
-					}
-				}
-				return file.delete();
+				// 파일이 많은 디렉토리는 FileTree 로 나눠서 삭제한다.
+				Map<String, Object> resultMap = FileTree.delete(file, false, null);
+				return resultMap != null && (Long) resultMap.get("failCnt") == 0;
 			}
 		} else {
 			logger.warn("파일 또는 디렉토리가 존재하지 않습니다. [경로 : " + (file == null ? "null" : file.getPath()) + "]");
@@ -0,0 +1,375 @@
+/**
+ * ================================================================================================
+ * Copyright (c) 2003 JJang (Seon-joo, Jang)
+ * Licensed under the MIT license (http://www.opensource.org/licenses/MIT)
+ * 
+ * @Author      : Seon-joo, Jang (jeuse7@gmail.com)
+ * @File Name   : ImageThumbnail.java
+ * @Description : 업로드 이미지 축소본(썸네일) 생성, 캐시 클래스.
+ *                목록 화면에서 원본 대신 요청한 크기(가로, 세로, 품질)로 줄인 이미지를 보내며,
+ *                만든 이미지는 업로드 경로 /thumb 에 저장해 두고 다시 사용한다.
+ *                캐시 전체 크기가 image.thumb.maxSize(MB)를 넘으면 오래 사용하지 않은 파일부터 삭제한다. (LRU)
+ *                응답에 ETag, Last-Modified, Cache-Control 을 보내고 조건부 요청에는 304를 응답한다.
+ * @Version     : 3.0.0
+ * ================================================================================================
+ */
+package kr.co.akis.util;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class ImageThumbnail {
+	
+	private static final Logger logger = LoggerFactory.getLogger(ImageThumbnail.class);
+	
+	/** 캐시 서브경로 (업로드 경로 기준) */
+	public static final String THUMB_PATH = "/thumb";
+	
+	/** 최대 가로, 세로 크기 */
+	public static final int MAX_SIZE = Const.properties.getInt("image.thumb.maxWidth", 2000);
+	
+	/** 기본 JPEG 품질 */
+	public static final int DEFAULT_QUALITY = 80;
+	
+	/** 캐시 최대 크기 (bytes) */
+	private static final long MAX_CACHE_SIZE = Const.properties.getLong("image.thumb.maxSize", 1024) * 1024 * 1024;
+	
+	/** 브라우저 캐시 시간 (초) */
+	private static final int MAX_AGE = Const.properties.getInt("image.thumb.maxAge", 86400);
+	
+	/** 사용 시간(LRU) 갱신 간격 - 매번 파일 수정시간을 바꾸지 않도록 이 간격이 지났을 때만 갱신한다. */
+	private static final long TOUCH_MILLIS = TimeUnit.HOURS.toMillis(1);
+	
+	/** 동시에 이미지를 만드는 쓰레드 수 (원본 이미지를 메모리에 올리므로 제한한다.) */
+	private static final Semaphore GENERATE_PERMITS = new Semaphore(Math.max(1, Runtime.getRuntime().availableProcessors()));
+	
+	/** 같은 축소본을 동시에 만들지 않기 위한 잠금 */
+	private static final ConcurrentMap<String, Object> LOCK_MAP = new ConcurrentHashMap<String, Object>();
+	
+	/** 캐시 전체 크기 (처음 사용할 때 계산) */
+	private static final AtomicLong cacheSize = new AtomicLong(-1);
+	
+	/** 캐시 정리 중 여부 */
+	private static final AtomicBoolean isEvicting = new AtomicBoolean(false);
+	
+	/**
+	 * <p>이미지 축소본을 응답한다. 축소본이 캐시에 없으면 만들어서 저장한 후 응답한다.</p>
+	 * <p>파일정보의 savePath, saveName 은 FileDownload.download(request, response, fileMap) 과 같다.
+	 * 원본보다 크게 늘리지 않으며 가로, 세로 비율을 유지한 채 지정한 크기 안에 맞춘다.</p>
+	 * 
+	 * @param request  (HttpServletRequest 객체)
+	 * @param response (HttpServletResponse 객체)
+	 * @param fileMap  (파일정보 Map)
+	 * @param width    (최대 가로 크기, 0 이면 세로 기준)
+	 * @param height   (최대 세로 크기, 0 이면 가로 기준)
+	 * @param quality  (JPEG 품질 1 ~ 100, 0 이면 기본값)
+	 */
+	public static void download(HttpServletRequest request, HttpServletResponse response, Map<String, Object> fileMap, int width, int height, int quality) {
+		String savePath = StringUtil.clean(fileMap.get("savePath"));
+		String saveName = StringUtil.clean(fileMap.get("saveName"));
+		String orgnName = StringUtil.clean(fileMap.get("orgnName"), saveName);
+		String category = FileUtil.getFileCategory(orgnName);
+		if (StringUtil.isBlank(savePath) || StringUtil.containsArr(savePath, "./|../|.\\|..\\|\r|\n|\r\n", "[|]")
+				|| StringUtil.isBlank(saveName) || StringUtil.containsArr(saveName, "./|../|.\\|..\\|\r|\n|\r\n", "[|]")) {
+			JsUtil.back(response, "잘못된 이미지 파일경로가 지정 되었습니다!!");
+			return;
+		}
+		if (!StringUtil.equalsSplit("jpg|png|gif|bmp", category, "[|]")) {
+			JsUtil.back(response, "이미지 파일이 아닙니다!!");
+			return;
+		}
+		if (width < 0 || height < 0 || (width == 0 && height == 0) || width > MAX_SIZE || height > MAX_SIZE || quality < 0 || quality > 100) {
+			JsUtil.back(response, "잘못된 이미지 크기가 지정 되었습니다!!");
+			return;
+		}
+		File srcFile = FileShard.getFile(FileUtil.cleanPath(savePath), saveName);
+		if (!srcFile.isFile()) {
+			logger.warn("이미지 파일이 존재하지 않습니다. [파일경로 : " + srcFile.toString() + "]");
+			JsUtil.back(response, "이미지 파일이 존재하지 않습니다!!");
+			return;
+		}
+		quality = quality == 0 ? DEFAULT_QUALITY : quality;
+		// 투명 배경이 있을 수 있는 형식은 PNG, 나머지는 JPEG 으로 만든다.
+		String format = StringUtil.equalsSplit("png|gif", category, "[|]") ? "png" : "jpg";
+		OutputStream os = null;
+		try {
+			String cacheKey = getCacheKey(srcFile, width, height, quality);
+			File thumbFile = new File(FileUtil.cleanPath(Const.UPLOAD_PATH + THUMB_PATH + "/" + cacheKey.substring(0, 2)), cacheKey + "." + format);
+			// 축소본은 원본과 크기 인자로 정해지므로 캐시 키를 ETag, 원본 수정시간을 Last-Modified 로 사용한다.
+			// 캐시에서 삭제된 축소본도 다시 만들지 않고 304를 응답할 수 있도록 생성 전에 체크한다.
+			String eTag = "\"" + cacheKey + "\"";
+			response.reset();
+			response.setHeader("ETag", eTag);
+			response.setDateHeader("Last-Modified", srcFile.lastModified());
+			response.setHeader("Cache-Control", "private, max-age=" + MAX_AGE);
+			if (FileDownload.isNotModified(request, eTag, srcFile.lastModified())) {
+				response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+				return;
+			}
+			if (!thumbFile.isFile()) {
+				generate(srcFile, thumbFile, width, height, quality, format);
+			} else if (System.currentTimeMillis() - thumbFile.lastModified() > TOUCH_MILLIS) {
+				thumbFile.setLastModified(System.currentTimeMillis());
+			}
+			response.setContentType("png".equals(format) ? "image/png" : "image/jpeg");
+			FileDownload.setContentLength(response, thumbFile.length());
+			os = response.getOutputStream();
+			Files.copy(thumbFile.toPath(), os);
+			os.flush();
+		} catch (Exception e) {
+			if (response.isCommitted()) {
+				logger.warn("이미지 전송 중단 [파일경로 : " + srcFile.toString() + ", 사유 : " + e.toString() + "]");
+			} else {
+				logger.error(ExceptionUtil.addMessage(e, "이미지 축소본 생성 실패!! [파일경로 : " + srcFile.toString() + "]"));
+				JsUtil.back(response, "이미지 축소본 생성 실패!!");
+			}
+		} finally {
+			if (os != null) try { os.close(); } catch (Exception e) {};
+		}
+	}
+	
+	/**
+	 * <p>원본 이미지를 줄여서 축소본 파일로 저장한다.</p>
+	 * <p>큰 원본은 읽을 때부터 건너뛰며(subsampling) 읽어서 메모리 사용량을 줄인다.</p>
+	 */
+	private static void generate(File srcFile, File thumbFile, int width, int height, int quality, String format) throws Exception {
+		String lockKey = thumbFile.getName();
+		Object lock = new Object();
+		Object prevLock = LOCK_MAP.putIfAbsent(lockKey, lock);
+		if (prevLock != null) {
+			lock = prevLock;
+		}
+		GENERATE_PERMITS.acquire();
+		try {
+			synchronized (lock) {
+				if (thumbFile.isFile()) {
+					return;
+				}
+				BufferedImage srcImage = read(srcFile, width, height);
+				if (srcImage == null) {
+					throw new IllegalArgumentException("이미지를 읽을 수 없습니다.");
+				}
+				double scale = Math.min(width == 0 ? Double.MAX_VALUE : (double) width / srcImage.getWidth(), height == 0 ? Double.MAX_VALUE : (double) height / srcImage.getHeight());
+				scale = Math.min(1.0, scale);
+				int thumbWidth = Math.max(1, (int) Math.round(srcImage.getWidth() * scale));
+				int thumbHeight = Math.max(1, (int) Math.round(srcImage.getHeight() * scale));
+				BufferedImage thumbImage = resize(srcImage, thumbWidth, thumbHeight, "png".equals(format));
+				thumbFile.getParentFile().mkdirs();
+				File tempFile = new File(thumbFile.getParentFile(), thumbFile.getName() + "." + Thread.currentThread().getId() + ".tmp");
+				write(thumbImage, tempFile, quality, format);
+				Files.move(tempFile.toPath(), thumbFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				addCacheSize(thumbFile.length());
+			}
+		} finally {
+			GENERATE_PERMITS.release();
+			LOCK_MAP.remove(lockKey, lock);
+		}
+	}
+	
+	/**
+	 * <p>이미지를 읽는다. 원본이 목표 크기의 2배보다 크면 건너뛰며 읽는다.</p>
+	 */
+	private static BufferedImage read(File srcFile, int width, int height) throws Exception {
+		ImageInputStream iis = ImageIO.createImageInputStream(srcFile);
+		if (iis == null) {
+			return null;
+		}
+		try {
+			Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+			if (!readers.hasNext()) {
+				return null;
+			}
+			ImageReader reader = readers.next();
+			try {
+				reader.setInput(iis, true, true);
+				int srcWidth = reader.getWidth(0);
+				int srcHeight = reader.getHeight(0);
+				int step = Math.min(width == 0 ? Integer.MAX_VALUE : srcWidth / (width * 2), height == 0 ? Integer.MAX_VALUE : srcHeight / (height * 2));
+				ImageReadParam param = reader.getDefaultReadParam();
+				if (step > 1) {
+					param.setSourceSubsampling(step, step, 0, 0);
+				}
+				return reader.read(0, param);
+			} finally {
+				reader.dispose();
+			}
+		} finally {
+			iis.close();
+		}
+	}
+	
+	/**
+	 * <p>이미지 크기를 바꾼다. 많이 줄일 때는 반씩 나눠서 줄여 계단 현상을 줄인다.</p>
+	 */
+	private static BufferedImage resize(BufferedImage image, int width, int height, boolean isAlpha) {
+		int type = isAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+		int curWidth = image.getWidth();
+		int curHeight = image.getHeight();
+		do {
+			curWidth = Math.max(width, curWidth / 2);
+			curHeight = Math.max(height, curHeight / 2);
+			BufferedImage resized = new BufferedImage(curWidth, curHeight, type);
+			Graphics2D g = resized.createGraphics();
+			try {
+				if (!isAlpha) {
+					// JPEG 은 투명 배경이 없으므로 흰색으로 채운다.
+					g.setColor(java.awt.Color.WHITE);
+					g.fillRect(0, 0, curWidth, curHeight);
+				}
+				g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+				g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+				g.drawImage(image, 0, 0, curWidth, curHeight, null);
+			} finally {
+				g.dispose();
+			}
+			image = resized;
+		} while (curWidth != width || curHeight != height);
+		return image;
+	}
+	
+	private static void write(BufferedImage image, File file, int quality, String format) throws Exception {
+		if ("png".equals(format)) {
+			ImageIO.write(image, "png", file);
+			return;
+		}
+		ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+		ImageOutputStream ios = ImageIO.createImageOutputStream(file);
+		try {
+			ImageWriteParam param = writer.getDefaultWriteParam();
+			param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+			param.setCompressionQuality(quality / 100f);
+			writer.setOutput(ios);
+			writer.write(null, new IIOImage(image, null, null), param);
+		} finally {
+			writer.dispose();
+			ios.close();
+		}
+	}
+	
+	/**
+	 * <p>원본 파일(경로, 크기, 수정시간)과 축소 인자로 캐시 키를 만든다. 원본이 바뀌면 키도 바뀐다.</p>
+	 */
+	private static String getCacheKey(File srcFile, int width, int height, int quality) throws Exception {
+		String key = srcFile.getCanonicalPath() + "|" + srcFile.length() + "|" + srcFile.lastModified() + "|" + width + "x" + height + "q" + quality;
+		return FileDedupStore.toHex(MessageDigest.getInstance("SHA-1").digest(key.getBytes("UTF-8")));
+	}
+	
+	/**
+	 * <p>캐시 크기를 늘리고 최대 크기를 넘으면 백그라운드에서 정리한다.</p>
+	 */
+	private static void addCacheSize(long size) {
+		if (cacheSize.get() < 0) {
+			synchronized (cacheSize) {
+				if (cacheSize.get() < 0) {
+					cacheSize.set(getCacheFiles(null));
+					return;
+				}
+			}
+		}
+		if (cacheSize.addAndGet(size) > MAX_CACHE_SIZE && isEvicting.compareAndSet(false, true)) {
+			Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						evict();
+					} finally {
+						isEvicting.set(false);
+					}
+				}
+			}, "image-thumb-evict");
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+	
+	/**
+	 * <p>오래 사용하지 않은 축소본부터 삭제해서 캐시 크기를 최대 크기의 90% 이하로 줄인다.</p>
+	 */
+	private static void evict() {
+		List<File> fileList = new ArrayList<File>();
+		long totalSize = getCacheFiles(fileList);
+		final ConcurrentMap<File, Long> lastModifiedMap = new ConcurrentHashMap<File, Long>();
+		for (File file : fileList) {
+			lastModifiedMap.put(file, file.lastModified());
+		}
+		Collections.sort(fileList, new Comparator<File>() {
+			@Override
+			public int compare(File f1, File f2) {
+				return Long.compare(lastModifiedMap.get(f1), lastModifiedMap.get(f2));
+			}
+		});
+		long targetSize = MAX_CACHE_SIZE / 10 * 9;
+		int deleteCnt = 0;
+		for (File file : fileList) {
+			if (totalSize <= targetSize) {
+				break;
+			}
+			long fileSize = file.length();
+			if (file.delete()) {
+				totalSize -= fileSize;
+				deleteCnt++;
+			}
+		}
+		cacheSize.set(totalSize);
+		logger.info("이미지 축소본 캐시 정리 [삭제 : " + deleteCnt + ", 캐시 크기 : " + totalSize + "]");
+	}
+	
+	/**
+	 * <p>캐시 파일 전체 크기를 리턴한다. fileList 가 있으면 파일 목록을 담는다.</p>
+	 */
+	private static long getCacheFiles(List<File> fileList) {
+		long totalSize = 0;
+		File[] dirs = new File(FileUtil.cleanPath(Const.UPLOAD_PATH + THUMB_PATH)).listFiles();
+		if (dirs == null) {
+			return 0;
+		}
+		for (File dir : dirs) {
+			File[] files = dir.listFiles();
+			if (files == null) {
+				continue;
+			}
+			for (File file : files) {
+				if (file.isFile() && !file.getName().endsWith(".tmp")) {
+					totalSize += file.length();
+					if (fileList != null) {
+						fileList.add(file);
+					}
+				}
+			}
+		}
+		return totalSize;
+	}
+	
+}
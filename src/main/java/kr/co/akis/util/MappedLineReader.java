@@ -0,0 +1,205 @@
+/**
+ * ================================================================================================
+ * Copyright (c) 2003 JJang (Seon-joo, Jang)
+ * Licensed under the MIT license (http://www.opensource.org/licenses/MIT)
+ * 
+ * @Author      : Seon-joo, Jang (jeuse7@gmail.com)
+ * @File Name   : MappedLineReader.java
+ * @Description : 메모리 매핑(MappedByteBuffer) 라인 읽기 클래스.
+ *                큰 파일(로그, 업로드 데이터 등)을 힙에 올리지 않고 일정 크기(MAP_SIZE)씩 매핑해서 한 줄씩 읽는다.
+ *                줄바꿈은 BufferedReader.readLine 과 같이 \n, \r\n, \r 로 나눈다.
+ *                줄바꿈은 바이트로 찾으므로 UTF-8, EUC-KR 같이 ASCII 호환 캐릭터셋만 사용할 수 있다. (isSupported)
+ * @Version     : 3.0.0
+ * ================================================================================================
+ */
+package kr.co.akis.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.util.Arrays;
+
+public class MappedLineReader implements Closeable {
+	
+	/** 한 번에 매핑하는 크기 (64MB) */
+	private static final int MAP_SIZE = 64 * 1024 * 1024;
+	
+	private final RandomAccessFile raf;
+	
+	private final FileChannel channel;
+	
+	private final long fileSize;
+	
+	private final CharsetDecoder decoder;
+	
+	/** 현재 매핑된 영역의 파일 내 시작위치 */
+	private long mapPos = 0;
+	
+	private MappedByteBuffer buffer = null;
+	
+	/** 매핑 크기보다 긴 줄을 이어 붙이는 버퍼 */
+	private ByteArrayOutputStream carry = null;
+	
+	/** 앞 줄이 \r 로 끝났는지 여부 (다음 \n 을 건너뛴다. 매핑 영역 끝에 걸친 \r\n 처리) */
+	private boolean isSkipLF = false;
+	
+	/**
+	 * <p>파일을 연다.</p>
+	 * 
+	 * @param file    (읽을 파일)
+	 * @param decoder (캐릭터셋 디코더)
+	 * @throws IOException
+	 */
+	public MappedLineReader(File file, CharsetDecoder decoder) throws IOException {
+		if (!isSupported(decoder.charset())) {
+			throw new IllegalArgumentException("메모리 매핑으로 읽을 수 없는 캐릭터셋입니다. [캐릭터셋 : " + decoder.charset() + "]");
+		}
+		this.raf = new RandomAccessFile(file, "r");
+		this.channel = raf.getChannel();
+		this.fileSize = channel.size();
+		this.decoder = decoder;
+	}
+	
+	/**
+	 * <p>줄바꿈 문자를 바이트로 찾을 수 있는(ASCII 호환) 캐릭터셋인지 체크한다.</p>
+	 * 
+	 * <pre>
+	 * MappedLineReader.isSupported(UTF-8)  = true
+	 * MappedLineReader.isSupported(MS949)  = true
+	 * MappedLineReader.isSupported(UTF-16) = false
+	 * </pre>
+	 * 
+	 * @param charset  (캐릭터셋)
+	 * @return boolean (사용 가능 여부)
+	 */
+	public static boolean isSupported(Charset charset) {
+		return charset.canEncode() && Arrays.equals("\r\n".getBytes(charset), new byte[] {'\r', '\n'});
+	}
+	
+	/**
+	 * <p>한 줄을 읽는다. 줄바꿈 문자(\n, \r\n, \r)는 포함하지 않으며 파일 끝이면 null 을 리턴한다.</p>
+	 * 
+	 * @return String (한 줄)
+	 * @throws IOException
+	 */
+	public String readLine() throws IOException {
+		while (true) {
+			if (buffer == null || !buffer.hasRemaining()) {
+				long nextPos = buffer == null ? 0 : mapPos + buffer.limit();
+				if (nextPos >= fileSize) {
+					return carry == null ? null : decode(null);
+				}
+				map(nextPos);
+			}
+			int start = buffer.position();
+			int limit = buffer.limit();
+			if (isSkipLF) {
+				isSkipLF = false;
+				if (buffer.get(start) == '\n') {
+					buffer.position(start + 1);
+					continue;
+				}
+			}
+			for (int i = start; i < limit; i++) {
+				byte b = buffer.get(i);
+				if (b == '\n' || b == '\r') {
+					ByteBuffer line = slice(start, i);
+					buffer.position(i + 1);
+					isSkipLF = b == '\r';
+					return decode(line);
+				}
+			}
+			if (start > 0 && mapPos + limit < fileSize) {
+				// 줄이 매핑 영역 끝에 걸치면 줄 시작위치부터 다시 매핑한다.
+				map(mapPos + start);
+				continue;
+			}
+			// 매핑 크기보다 긴 줄이거나 파일 마지막 줄은 이어 붙인다.
+			if (carry == null) {
+				carry = new ByteArrayOutputStream();
+			}
+			byte[] b = new byte[limit - start];
+			buffer.get(b);
+			carry.write(b, 0, b.length);
+		}
+	}
+	
+	private void map(long pos) throws IOException {
+		if (buffer != null) {
+			unmap(buffer);
+		}
+		mapPos = pos;
+		buffer = channel.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(MAP_SIZE, fileSize - pos));
+	}
+	
+	private ByteBuffer slice(int start, int end) {
+		ByteBuffer line = buffer.duplicate();
+		line.position(start);
+		line.limit(end);
+		return line.slice();
+	}
+	
+	private String decode(ByteBuffer line) throws IOException {
+		if (carry != null) {
+			if (line != null) {
+				byte[] b = new byte[line.remaining()];
+				line.get(b);
+				carry.write(b, 0, b.length);
+			}
+			line = ByteBuffer.wrap(carry.toByteArray());
+			carry = null;
+		}
+		decoder.reset();
+		return decoder.decode(line).toString();
+	}
+	
+	/**
+	 * <p>매핑을 해제하고 파일을 닫는다.</p>
+	 * <p>매핑이 남아 있으면 Windows 에서는 GC 될 때까지 파일이 잠겨 바로 삭제할 수 없다.</p>
+	 */
+	@Override
+	public void close() throws IOException {
+		if (buffer != null) {
+			unmap(buffer);
+			buffer = null;
+		}
+		carry = null;
+		channel.close();
+		raf.close();
+	}
+	
+	/**
+	 * <p>매핑된 메모리를 바로 해제한다. 해제한 버퍼는 다시 사용하면 안된다.</p>
+	 * <p>표준 API 가 없으므로 Java 9 이상은 Unsafe.invokeCleaner, Java 8 은 DirectBuffer.cleaner 를 사용하며 실패하면 GC 에 맡긴다.</p>
+	 */
+	private static void unmap(MappedByteBuffer buffer) {
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			try {
+				Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+				Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+				theUnsafe.setAccessible(true);
+				invokeCleaner.invoke(theUnsafe.get(null), buffer);
+			} catch (NoSuchMethodException e) {
+				Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+				cleanerMethod.setAccessible(true);
+				Object cleaner = cleanerMethod.invoke(buffer);
+				if (cleaner != null) {
+					cleaner.getClass().getMethod("clean").invoke(cleaner);
+				}
+			}
+		} catch (Throwable e) {
+			// 해제하지 못해도 GC 될 때 해제된다.
+		}
+	}
+	
+}
@@ -2,6 +2,8 @@ package kr.co.newbie.sample.bbs.service;
 
 import java.util.List;
 
+import org.apache.ibatis.session.ResultHandler;
+
 /**
  * @Author      : 장선주
  * @Description : 샘플_게시판 Business Class.
@@ -17,5 +19,14 @@ public interface SampleBbsService {
 	 * @throws Exception
 	 */
 	List<SampleBbsVO> selectList(SampleBbsVO mainVo) throws Exception;
+	
+	/**
+	 * 엑셀 다운로드용 데이터를 한 건씩 조회한다.
+	 * 
+	 * @param mainVo - 조회할 정보가 담긴 VO
+	 * @param resultHandler - 조회 결과를 한 건씩 처리할 Handler
+	 * @throws Exception
+	 */
+	void selectExcelList(SampleBbsVO mainVo, ResultHandler<SampleBbsVO> resultHandler) throws Exception;
 
 }
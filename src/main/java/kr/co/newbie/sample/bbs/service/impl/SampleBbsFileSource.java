@@ -0,0 +1,64 @@
+package kr.co.newbie.sample.bbs.service.impl;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.ibatis.session.ResultHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.stereotype.Service;
+
+import kr.co.akis.common.upload.OrphanSweeper;
+import kr.co.akis.common.upload.ShardMigrator;
+
+/**
+ * @Author      : 장선주
+ * @Description : 샘플_게시판 첨부파일 참조 목록 Class. (업로드 경로 /bbs 아래 파일의 참조를 제공)
+ */
+@Service
+public class SampleBbsFileSource implements OrphanSweeper.ReferenceSource, ApplicationListener<ContextRefreshedEvent> {
+	
+	@Autowired
+	private SampleBbsMapper mainMapper;
+	
+	private final AtomicBoolean isStarted = new AtomicBoolean(false);
+	
+	/**
+	 * 첨부파일 루트 경로 목록을 리턴한다.
+	 * 
+	 * @return 루트 경로 목록 (업로드 경로 기준)
+	 */
+	@Override
+	public String[] getRootPaths() {
+		return new String[] {"/bbs"};
+	}
+	
+	/**
+	 * 첨부파일 참조 목록(저장경로, 저장파일명)을 한 건씩 조회한다.
+	 * 
+	 * @param handler - 조회 결과를 한 건씩 처리할 Handler
+	 * @throws Exception
+	 */
+	@Override
+	public void fetch(ResultHandler<Map<String, Object>> handler) throws Exception {
+		mainMapper.selectFileList(handler);
+	}
+	
+	/**
+	 * 업로드 파일 정리(upload.sweeper.interval 간격)와 분산 디렉토리 이동(file.shard.migrate 가 true 일 때)을 시작한다.
+	 * 루트 컨텍스트가 등록된 후에 Const 를 사용할 수 있으므로 DispatcherServlet 컨텍스트의 refresh 이벤트에서 한 번만 실행한다.
+	 * 정리 쓰레드는 BackgroundTaskShutdown 에서 종료한다.
+	 * 
+	 * @param event - 컨텍스트 refresh 이벤트
+	 */
+	@Override
+	public void onApplicationEvent(ContextRefreshedEvent event) {
+		if (event.getApplicationContext().getParent() == null || !isStarted.compareAndSet(false, true)) {
+			return;
+		}
+		ShardMigrator.start(this);
+		OrphanSweeper.start(this);
+	}
+	
+}
@@ -1,6 +1,9 @@
 package kr.co.newbie.sample.bbs.service.impl;
 
 import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.session.ResultHandler;
 
 import egovframework.rte.psl.dataaccess.mapper.Mapper;
 import kr.co.newbie.sample.bbs.service.SampleBbsVO;
@@ -20,5 +23,22 @@ public interface SampleBbsMapper {
 	 * @throws Exception
 	 */
 	public List<SampleBbsVO> selectList(SampleBbsVO mainVo) throws Exception;
+	
+	/**
+	 * 엑셀 다운로드용 데이터를 한 건씩 조회한다.
+	 * 
+	 * @param mainVo - 조회할 정보가 담긴 VO
+	 * @param resultHandler - 조회 결과를 한 건씩 처리할 Handler
+	 * @throws Exception
+	 */
+	public void selectExcelList(SampleBbsVO mainVo, ResultHandler<SampleBbsVO> resultHandler) throws Exception;
+	
+	/**
+	 * 첨부파일 참조 목록(저장경로, 저장파일명)을 한 건씩 조회한다.
+	 * 
+	 * @param resultHandler - 조회 결과를 한 건씩 처리할 Handler
+	 * @throws Exception
+	 */
+	public void selectFileList(ResultHandler<Map<String, Object>> resultHandler) throws Exception;
 		
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package kr.co.newbie.sample.bbs.service.impl;
 
 import java.util.List;
 
+import org.apache.ibatis.session.ResultHandler;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -31,4 +32,16 @@ public class SampleBbsServiceImpl extends EgovAbstractServiceImpl implements Sam
 		return mainMapper.selectList(mainVo);
 	}
 	
+	/**
+	 * 엑셀 다운로드용 데이터를 한 건씩 조회한다.
+	 * 
+	 * @param mainVo - 조회할 정보가 담긴 VO
+	 * @param resultHandler - 조회 결과를 한 건씩 처리할 Handler
+	 * @throws Exception
+	 */
+	public void selectExcelList(SampleBbsVO mainVo, ResultHandler<SampleBbsVO> resultHandler) throws Exception {
+		// 엑셀 다운로드용 데이터 조회
+		mainMapper.selectExcelList(mainVo, resultHandler);
+	}
+	
 }
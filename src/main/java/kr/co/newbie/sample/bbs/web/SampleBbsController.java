@@ -1,14 +1,22 @@
 package kr.co.newbie.sample.bbs.web;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.ModelMap;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 
 import egovframework.rte.fdl.property.EgovPropertyService;
+import kr.co.akis.common.excel.ExcelExportJob;
+import kr.co.akis.common.excel.ExcelExportManager;
+import kr.co.akis.common.excel.ExcelResultHandler;
+import kr.co.akis.common.excel.PoiExcel;
 import kr.co.newbie.sample.bbs.service.SampleBbsService;
 import kr.co.newbie.sample.bbs.service.SampleBbsVO;
 
@@ -26,6 +34,9 @@ public class SampleBbsController {
 	@Autowired
 	protected EgovPropertyService egovProperties;
 	
+	/** 엑셀 컬럼 정보 - {제목, VO 프로퍼티명} */
+	private static final String[][] EXCEL_COLUMN_ARR = {{"번호", "bbsSid"}, {"제목", "sj"}, {"작성자", "regNm"}, {"등록일", "regDt"}};
+	
 	/**
 	 * 데이터 리스트를 조회한다.
 	 */
@@ -37,4 +48,64 @@ public class SampleBbsController {
 		return request.getServletPath();
 	}
 	
+	/**
+	 * 데이터 리스트를 엑셀로 다운로드한다.
+	 */
+	@RequestMapping(value="/bbsExcel")
+	public void excel(@ModelAttribute("searchVo") SampleBbsVO mainVo, HttpServletRequest request, HttpServletResponse response) throws Exception {
+		// 조회 결과를 한 건씩 스트리밍 Sheet에 작성
+		SXSSFWorkbook workbook = PoiExcel.createStreamWorkbook();
+		try {
+			mainService.selectExcelList(mainVo, new ExcelResultHandler<SampleBbsVO>(workbook.createSheet("게시판"), EXCEL_COLUMN_ARR));
+		} catch (Exception e) {
+			workbook.dispose();
+			throw e;
+		}
+		
+		PoiExcel.download(request, response, workbook, "게시판 목록.xlsx");
+	}
+	
+	/**
+	 * 데이터 리스트 엑셀 작성을 백그라운드 작업으로 등록한다.
+	 */
+	@RequestMapping(value="/bbsExcelJob")
+	public String excelJob(@ModelAttribute("searchVo") final SampleBbsVO mainVo, HttpServletRequest request, ModelMap model) throws Exception {
+		ExcelExportJob job = ExcelExportManager.submit(request.getSession().getId(), "게시판 목록.xlsx", new ExcelExportManager.ExportTask() {
+			@Override
+			public void write(Sheet sheet, ExcelExportJob job) throws Exception {
+				mainService.selectExcelList(mainVo, new ExcelResultHandler<SampleBbsVO>(sheet, EXCEL_COLUMN_ARR).setExportJob(job));
+			}
+		});
+		
+		if (job == null) {
+			model.addAttribute("result", "BUSY");
+		} else {
+			model.addAttribute("result", job.toMap());
+		}
+		return "jsonView";
+	}
+	
+	/**
+	 * 백그라운드 엑셀 작업 상태를 조회한다.
+	 */
+	@RequestMapping(value="/bbsExcelStatus")
+	public String excelStatus(@RequestParam("jobId") String jobId, HttpServletRequest request, ModelMap model) throws Exception {
+		ExcelExportJob job = ExcelExportManager.getJob(request.getSession().getId(), jobId);
+		
+		if (job == null) {
+			model.addAttribute("result", "NONE");
+		} else {
+			model.addAttribute("result", job.toMap());
+		}
+		return "jsonView";
+	}
+	
+	/**
+	 * 백그라운드 엑셀 작업으로 작성된 파일을 다운로드한다.
+	 */
+	@RequestMapping(value="/bbsExcelDownload")
+	public void excelDownload(@RequestParam("jobId") String jobId, HttpServletRequest request, HttpServletResponse response) throws Exception {
+		ExcelExportManager.download(request, response, request.getSession().getId(), jobId);
+	}
+	
 }
\ No newline at end of file
@@ -0,0 +1,118 @@
+package kr.co.newbie.sample.file.web;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.ModelMap;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import kr.co.akis.common.upload.UploadPipeline;
+import kr.co.akis.util.ChunkUpload;
+import kr.co.akis.util.Const;
+import kr.co.akis.util.FileStreamUpload;
+import kr.co.akis.util.ImageThumbnail;
+
+/**
+ * @Author      : 장선주
+ * @Description : 샘플_첨부파일 Controller Class.
+ */
+@Controller
+@RequestMapping(value="/sample")
+public class SampleFileController {
+	
+	/**
+	 * 분할 업로드 세션을 생성한다.
+	 */
+	@RequestMapping(value="/chunkInit", method=RequestMethod.POST)
+	public String chunkInit(@RequestParam("orgnName") String orgnName, @RequestParam("fileSize") long fileSize, @RequestParam("chunkSize") int chunkSize,
+			@RequestParam(value="contentType", required=false) String contentType, HttpServletRequest request, ModelMap model) throws Exception {
+		String uploadId = ChunkUpload.init(request.getSession().getId(), orgnName, fileSize, chunkSize, contentType);
+		
+		model.addAttribute("result", uploadId == null ? "ERROR" : uploadId);
+		return "jsonView";
+	}
+	
+	/**
+	 * 분할 업로드 조각 하나를 저장한다. (요청 본문이 조각 데이터)
+	 */
+	@RequestMapping(value="/chunkUpload", method={RequestMethod.PUT, RequestMethod.POST})
+	public String chunkUpload(@RequestParam("uploadId") String uploadId, @RequestParam("chunkNo") int chunkNo, HttpServletRequest request, ModelMap model) throws Exception {
+		model.addAttribute("result", ChunkUpload.write(request.getSession().getId(), uploadId, chunkNo, request.getInputStream()));
+		return "jsonView";
+	}
+	
+	/**
+	 * 분할 업로드 진행 상태를 조회한다. (이어올리기 할 조각 확인)
+	 */
+	@RequestMapping(value="/chunkStatus")
+	public String chunkStatus(@RequestParam("uploadId") String uploadId, HttpServletRequest request, ModelMap model) throws Exception {
+		Map<String, Object> statusMap = ChunkUpload.status(request.getSession().getId(), uploadId);
+		
+		model.addAttribute("result", statusMap == null ? "NONE" : statusMap);
+		return "jsonView";
+	}
+	
+	/**
+	 * 분할 업로드를 완료하고 파일정보를 리턴한다.
+	 */
+	@RequestMapping(value="/chunkComplete", method=RequestMethod.POST)
+	public String chunkComplete(@RequestParam("uploadId") String uploadId, HttpServletRequest request, ModelMap model) throws Exception {
+		Map<String, Object> fileMap = ChunkUpload.complete(request.getSession().getId(), uploadId, "sample", null, null);
+		
+		model.addAttribute("result", fileMap == null ? "ERROR" : fileMap);
+		return "jsonView";
+	}
+	
+	/**
+	 * 첨부파일을 임시파일 없이 바로 저장한다. (context-common.xml streamingUrls 에 등록된 URL)
+	 */
+	@RequestMapping(value="/streamUpload", method=RequestMethod.POST)
+	public String streamUpload(HttpServletRequest request, ModelMap model) throws Exception {
+		Map<String, List<String>> paramMap = new HashMap<String, List<String>>();
+		List<Map<String, Object>> uploadList = FileStreamUpload.upload(request, null, 100 * 1024 * 1024, paramMap);
+		// 체크섬, 콘텐츠타입 확인, 바이러스 검사는 백그라운드에서 처리
+		if (uploadList != null) {
+			for (Map<String, Object> fileMap : uploadList) {
+				UploadPipeline.submit(fileMap);
+			}
+		}
+		
+		model.addAttribute("result", uploadList == null ? "ERROR" : uploadList);
+		return "jsonView";
+	}
+	
+	/**
+	 * 첨부파일 후처리 결과를 조회한다.
+	 */
+	@RequestMapping(value="/uploadStatus")
+	public String uploadStatus(@RequestParam("savePath") String savePath, @RequestParam("saveName") String saveName, ModelMap model) throws Exception {
+		Map<String, Object> fileMap = new HashMap<String, Object>();
+		fileMap.put("savePath", savePath);
+		fileMap.put("saveName", saveName);
+		
+		model.addAttribute("result", UploadPipeline.getStatus(fileMap));
+		return "jsonView";
+	}
+	
+	/**
+	 * 첨부 이미지 축소본을 다운로드 한다.
+	 */
+	@RequestMapping(value="/thumbnail")
+	public void thumbnail(@RequestParam("savePath") String savePath, @RequestParam("saveName") String saveName,
+			@RequestParam(value="width", defaultValue="0") int width, @RequestParam(value="height", defaultValue="0") int height,
+			@RequestParam(value="quality", defaultValue="0") int quality, HttpServletRequest request, HttpServletResponse response) throws Exception {
+		Map<String, Object> fileMap = new HashMap<String, Object>();
+		fileMap.put("savePath", Const.UPLOAD_PATH + savePath);
+		fileMap.put("saveName", saveName);
+		
+		ImageThumbnail.download(request, response, fileMap, width, height, quality);
+	}
+	
+}